@@ -1,7 +1,11 @@
 package com.auction.my.config;
 
 import com.auction.my.entity.User;
+import com.auction.my.repository.AuctionItemRepository;
 import com.auction.my.repository.UserRepository;
+import com.auction.my.service.ImageMigration;
+import com.auction.my.service.SearchSchema;
+import com.auction.my.service.ThumbnailService;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -40,4 +44,22 @@ public class DataInitializer {
             }
         };
     }
+
+    @Bean
+    public CommandLineRunner backfillHighestBids(AuctionItemRepository auctionItemRepository) {
+        return args -> auctionItemRepository.backfillHighestBids();
+    }
+
+    @Bean
+    public CommandLineRunner createSearchIndex(SearchSchema searchSchema) {
+        return args -> searchSchema.install();
+    }
+
+    @Bean
+    public CommandLineRunner migrateImages(ImageMigration imageMigration, ThumbnailService thumbnailService) {
+        return args -> {
+            imageMigration.migrate();
+            thumbnailService.processMissing();
+        };
+    }
 }
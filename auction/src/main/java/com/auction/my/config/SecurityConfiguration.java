@@ -43,6 +43,8 @@ public class SecurityConfiguration {
                         .requestMatchers("/api/statistics/**").hasRole("ADMIN")
                         .requestMatchers("/ws/*/**").permitAll()
                         .requestMatchers("/sockjs-node/**").permitAll()
+                        // Loaded by <img> tags, which cannot send the bearer token
+                        .requestMatchers("/api/images/*").permitAll()
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session
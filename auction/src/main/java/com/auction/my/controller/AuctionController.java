@@ -7,13 +7,18 @@ package com.auction.my.controller;
 
 import com.auction.my.dto.AuctionItemDto;
 import com.auction.my.dto.AuctionItemDtoWithoutImages;
+import com.auction.my.dto.AuctionSuggestion;
 import com.auction.my.dto.CreateAuctionRequest;
+import com.auction.my.dto.FacetedResults;
 import com.auction.my.dto.UpdateAuctionRequest;
 import com.auction.my.entity.AuctionItem;
+import com.auction.my.exception.ValidationException;
 import com.auction.my.service.AuctionService;
 
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.bind.annotation.*;
@@ -42,49 +47,40 @@ public class AuctionController {
     }
 
     /**
-     * Get an auction by ID.
+     * Get an auction by ID, as the {@link AuctionItemDto} JSON kept by the
+     * detail cache.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<AuctionItemDto> getAuctionById(@PathVariable Long id) {
+    public ResponseEntity<byte[]> getAuctionById(@PathVariable Long id) {
 
-        AuctionItemDto auction = auctionService.getAuctionById(id);
-        auctionService.updateViews(auction.getViews()+1, auction.getId());
+        byte[] auction = auctionService.getAuctionDetailJson(id);
+        auctionService.recordView(id);
 
-        return ResponseEntity.ok(auction);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(auction);
     }
     @GetMapping("/get/{id}")
     public ResponseEntity<AuctionItemDtoWithoutImages> getAuctionByIdWithoutImages(@PathVariable Long id) {
-        AuctionItemDto auction = auctionService.getAuctionById(id);
-        auctionService.updateViews(auction.getViews() + 1, auction.getId());
-
-        AuctionItemDtoWithoutImages auctionWithoutImages = new AuctionItemDtoWithoutImages(
-                auction.getId(),
-                auction.getTitle(),
-                auction.getDescription(),
-                auction.getStartingPrice(),
-                auction.getCurrentHighestBid(),
-                auction.getStartTime(),
-                auction.getEndTime(),
-                auction.getSellerId(),
-                auction.getSellerUsername(),
-                auction.getCurrentHighestBidId(),
-                auction.getCurrentHighestBidderUsername(),
-                auction.getCategory(),
-                auction.getBrand(),
-                auction.getViews()
-        );
+        AuctionItemDtoWithoutImages auctionWithoutImages = auctionService.getAuctionListingById(id);
+        auctionService.recordView(id);
 
         return ResponseEntity.ok(auctionWithoutImages);
     }
 
+
     /**
      * Get all auctions with pagination and optional sorting.
+     * With {@code after} (empty for the first page) the list is paged by
+     * cursor instead, ordered by end time, without a total count.
      */
     @GetMapping("/all")
-    public ResponseEntity<Page<AuctionItemDtoWithoutImages>> getAllAuctions(
+    public ResponseEntity<?> getAllAuctions(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after
             ) {
+        if (after != null) {
+            return ResponseEntity.ok(auctionService.getAllAuctions(after, size));
+        }
         Page<AuctionItemDtoWithoutImages> auctions = auctionService.getAllAuctions(page, size);
         return ResponseEntity.ok(auctions);
     }
@@ -110,37 +106,100 @@ public class AuctionController {
     }
 
     /**
-     * Get all active auctions with pagination.
+     * Get all active auctions with pagination, or by cursor with {@code after}.
+     * With {@code sort=endingSoon} they come soonest ending first, from memory.
      */
     @GetMapping("/active")
-    public ResponseEntity<Page<AuctionItemDto>> getActiveAuctions(
+    public ResponseEntity<?> getActiveAuctions(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        Page<AuctionItemDto> activeAuctions = auctionService.getActiveAuctions(page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String sort) {
+        if ("endingSoon".equals(sort)) {
+            return after != null
+                    ? ResponseEntity.ok(auctionService.getAuctionsEndingSoon(after, size))
+                    : ResponseEntity.ok(auctionService.getAuctionsEndingSoon(page, size));
+        }
+        if (sort != null) {
+            throw new ValidationException("Unknown sort: " + sort);
+        }
+        if (after != null) {
+            return ResponseEntity.ok(auctionService.getActiveAuctions(after, size));
+        }
+        Page<AuctionItemDtoWithoutImages> activeAuctions = auctionService.getActiveAuctions(page, size);
         return ResponseEntity.ok(activeAuctions);
     }
+
+    /**
+     * Open auctions ending within a time window (from now when {@code from}
+     * is omitted), soonest first.
+     */
+    @GetMapping("/ending")
+    public ResponseEntity<List<AuctionItemDtoWithoutImages>> getAuctionsEndingBetween(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(auctionService.getAuctionsEndingBetween(from, to, size));
+    }
+
+    /**
+     * Type-ahead suggestions for the search box, from open auctions.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<AuctionSuggestion>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(auctionService.suggest(q, size));
+    }
+
+    /**
+     * Open auctions with the most recent views and bids, best first.
+     */
+    @GetMapping("/trending")
+    public ResponseEntity<List<AuctionItemDtoWithoutImages>> getTrendingAuctions(
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(auctionService.getTrendingAuctions(size));
+    }
+
+    /**
+     * Search auctions: {@code title} is matched as full text against title,
+     * brand, category and description; category and brand match exactly,
+     * ignoring case. With {@code facets=true} the results come with counts
+     * per category, brand and price range.
+     */
     @GetMapping("/filtered")
-    public ResponseEntity<Page<AuctionItemDto>> getAuctions(
+    public ResponseEntity<?> getAuctions(
             @RequestParam(required = false) String title,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) String brand,
             @RequestParam(required = false) Double minPrice,
             @RequestParam(required = false) Double maxPrice,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-
-        Page<AuctionItemDto> auctions = auctionService.getAuctionsByFilters(title, category, brand, minPrice, maxPrice, page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "false") boolean facets) {
+        Object auctions = after != null
+                ? auctionService.getAuctionsByFilters(title, category, brand, minPrice, maxPrice, after, size)
+                : auctionService.getAuctionsByFilters(title, category, brand, minPrice, maxPrice, page, size);
+        if (facets) {
+            return ResponseEntity.ok(new FacetedResults<>(auctions,
+                    auctionService.getSearchFacets(title, category, brand, minPrice, maxPrice)));
+        }
         return ResponseEntity.ok(auctions);
     }
     /**
-     * Get auctions created by a specific user.
+     * Get auctions created by a specific user, or by cursor with {@code after}.
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<Page<AuctionItemDto>> getUserAuctions(
+    public ResponseEntity<?> getUserAuctions(
             @PathVariable Long userId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        Page<AuctionItemDto> userAuctions = auctionService.getUserAuctions(userId, page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after) {
+        if (after != null) {
+            return ResponseEntity.ok(auctionService.getUserAuctions(userId, after, size));
+        }
+        Page<AuctionItemDtoWithoutImages> userAuctions = auctionService.getUserAuctions(userId, page, size);
         return ResponseEntity.ok(userAuctions);
     }
 
@@ -2,6 +2,7 @@ package com.auction.my.controller;
 import com.auction.my.dto.*;
 import com.auction.my.entity.User;
 import com.auction.my.service.AuthenticationService;
+import com.auction.my.service.ImageStore;
 import com.auction.my.service.JwtService;
 import lombok.RequiredArgsConstructor;
 
@@ -40,12 +41,6 @@ public class AuthController {
         try {
             User authenticatedUser = authenticationService.authenticate(loginUserDto);
 
-            // Ensure image is loaded properly
-            String userImage = authenticatedUser.getImage();
-            if (userImage != null && userImage.length() > 10485760) { // 10MB limit
-                authenticatedUser.setImage(null); // or truncate if needed
-            }
-
             Map<String, Object> extraClaims = new HashMap<>();
             extraClaims.put("id", authenticatedUser.getId());
             extraClaims.put("role", authenticatedUser.getRole());
@@ -63,7 +58,7 @@ public class AuthController {
                     authenticatedUser.getAddress(),
                     authenticatedUser.getGender(),
                     authenticatedUser.getRole().name(),
-                    authenticatedUser.getImage()
+                    ImageStore.url(authenticatedUser.getImageHash())
             );
 
             LoginResponse loginResponse = new LoginResponse(jwtToken, jwtService.getExpirationTime(), responseUserDto);
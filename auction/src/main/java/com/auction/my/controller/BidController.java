@@ -1,73 +1,80 @@
 package com.auction.my.controller;
 
 import com.auction.my.dto.BidDto;
+import com.auction.my.dto.MaxBidDto;
 import com.auction.my.dto.PlaceBidRequest;
-import com.auction.my.exception.UnauthorizedException;
-import com.auction.my.service.AuctionService;
+import com.auction.my.dto.PlaceMaxBidRequest;
 import com.auction.my.service.BidService;
-import com.auction.my.service.JwtService;
-import com.auction.my.service.UserService;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Objects;
-
 @RestController
 @RequestMapping("/api/bids")
 public class BidController {
 
     private final BidService bidService;
-    private final JwtService jwtService;
-    private final AuctionService auctionService;
 
-    public BidController(BidService bidService, JwtService jwtService, UserService userService, AuctionService auctionService) {
+    public BidController(BidService bidService) {
         this.bidService = bidService;
-        this.jwtService = jwtService;
-        this.auctionService = auctionService;
     }
 
     /**
-     * Place a bid on an auction item.
+     * Place a bid on an auction item. The bid engine rejects bids from the
+     * seller, so the auction does not have to be loaded here.
      */
     @PostMapping("/{auctionId}")
     public ResponseEntity<BidDto> placeBid(
             @PathVariable Long auctionId,
-            @RequestBody PlaceBidRequest request,
-            @RequestHeader("Authorization") String authorization
+            @RequestBody PlaceBidRequest request
             ) {
 
-        String jwtToken = authorization.replace("Bearer ", "");
-        Long userId = Long.valueOf(jwtService.extractUserId(jwtToken));  // Extract the user ID from the JWT token
-        Long ownerId = auctionService.getAuctionById(auctionId).getSellerId();
-        if (Objects.equals(userId, ownerId)) {
-            throw new UnauthorizedException("You are not authorized to bid on your own products");
-        }
         BidDto bidDto = bidService.placeBid(auctionId, request);
 
         return ResponseEntity.ok(bidDto);
     }
 
     /**
-     * Get all bids for a specific auction item.
+     * Register or raise a maximum bid; the system then bids for the user in
+     * increments up to that amount.
+     */
+    @PostMapping("/{auctionId}/max")
+    public ResponseEntity<MaxBidDto> placeMaxBid(
+            @PathVariable Long auctionId,
+            @RequestBody PlaceMaxBidRequest request) {
+
+        MaxBidDto maxBidDto = bidService.placeMaxBid(auctionId, request);
+        return ResponseEntity.ok(maxBidDto);
+    }
+
+    /**
+     * Get all bids for a specific auction item, or by cursor with {@code after}.
      */
     @GetMapping("/auction/{auctionId}")
-    public ResponseEntity<Page<BidDto>> getAuctionBids(
+    public ResponseEntity<?> getAuctionBids(
             @PathVariable Long auctionId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after) {
+        if (after != null) {
+            return ResponseEntity.ok(bidService.getAuctionBids(auctionId, after, size));
+        }
 
         Page<BidDto> bids = bidService.getAuctionBids(auctionId, page, size);
         return ResponseEntity.ok(bids);
     }
 
     /**
-     * Get all bids placed by the current user.
+     * Get all bids placed by the current user, or by cursor with {@code after}.
      */
     @GetMapping("/user")
-    public ResponseEntity<Page<BidDto>> getCurrentUserBids(
+    public ResponseEntity<?> getCurrentUserBids(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after) {
+        if (after != null) {
+            return ResponseEntity.ok(bidService.getCurrentUserBids(after, size));
+        }
 
         // This checks if the user is authenticated by the JWT token
         Page<BidDto> bids = bidService.getCurrentUserBids(page, size);
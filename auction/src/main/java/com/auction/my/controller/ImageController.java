@@ -0,0 +1,127 @@
+package com.auction.my.controller;
+
+import com.auction.my.dto.ImageUploadResponse;
+import com.auction.my.service.ImageStore;
+import com.auction.my.service.ImageUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uploads images to and serves them from the {@link ImageStore}. The content
+ * behind a hash never changes, so responses are cacheable forever and the
+ * hash is the ETag, and the content type is the one the store recorded.
+ * Single byte ranges are honoured; bodies go out through the connector's
+ * sendfile when it has one, and {@link FileChannel#transferTo} otherwise.
+ */
+@RestController
+@RequestMapping("/api/images")
+public class ImageController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ImageStore imageStore;
+    private final ImageUploadService imageUploadService;
+
+    public ImageController(ImageStore imageStore, ImageUploadService imageUploadService) {
+        this.imageStore = imageStore;
+        this.imageUploadService = imageUploadService;
+    }
+
+    /**
+     * Uploads one image as the raw request body (for example
+     * {@code fetch(url, {method: 'POST', body: file})}), streamed straight
+     * to the store.
+     */
+    @PostMapping
+    public ResponseEntity<ImageUploadResponse> uploadImage(HttpServletRequest request) throws IOException {
+        String hash = imageUploadService.upload(request.getContentType(), request.getContentLengthLong(),
+                request.getInputStream());
+        return ResponseEntity.status(HttpStatus.CREATED).body(new ImageUploadResponse(hash, ImageStore.url(hash)));
+    }
+
+    @GetMapping("/{hash}")
+    public void getImage(@PathVariable String hash, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Path path = imageStore.find(hash);
+        if (path == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable().getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(hash)) {
+            return;
+        }
+
+        long length = Files.size(path);
+        long start = 0;
+        long end = length - 1;
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                // Several ranges would need a multipart body; the whole image is served instead.
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    if (start >= length) {
+                        throw new IllegalArgumentException("Range starts after the end of the image");
+                    }
+                    end = ranges.get(0).getRangeEnd(length);
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+
+        response.setContentType(imageStore.contentType(hash, path));
+        response.setContentLengthLong(end - start + 1);
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the file to the socket after this returns.
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel file = FileChannel.open(path)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                position += file.transferTo(position, end + 1 - position, out);
+            }
+        }
+    }
+}
@@ -25,12 +25,16 @@ public class NotificationController {
     }
 
     /**
-     * Get all notifications for the current user, with pagination.
+     * Get all notifications for the current user, with pagination or by cursor with {@code after}.
      */
     @GetMapping
-    public ResponseEntity<Page<NotificationDto>> getUserNotifications(
+    public ResponseEntity<?> getUserNotifications(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after) {
+        if (after != null) {
+            return ResponseEntity.ok(notificationService.getUserNotifications(after, size));
+        }
         Page<NotificationDto> notifications = notificationService.getUserNotifications(page, size);
         return ResponseEntity.ok(notifications);
     }
@@ -44,12 +48,16 @@ public class NotificationController {
         notificationService.notifyLastMaxBidderOutbid(bid);
     }
     /**
-     * Get unread notifications for the current user, with pagination.
+     * Get unread notifications for the current user, with pagination or by cursor with {@code after}.
      */
     @GetMapping("/unread")
-    public ResponseEntity<Page<NotificationDto>> getUnreadNotifications(
+    public ResponseEntity<?> getUnreadNotifications(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after) {
+        if (after != null) {
+            return ResponseEntity.ok(notificationService.getUnreadNotifications(after, size));
+        }
         Page<NotificationDto> unreadNotifications = notificationService.getUnreadNotifications(page, size);
         return ResponseEntity.ok(unreadNotifications);
     }
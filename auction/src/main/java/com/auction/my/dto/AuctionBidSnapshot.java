@@ -0,0 +1,23 @@
+package com.auction.my.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Scalar view of the auction columns needed to accept a bid, so the bid path
+ * never hydrates the full {@code AuctionItem} (bids, images, seller).
+ */
+@Getter
+@AllArgsConstructor
+public class AuctionBidSnapshot {
+    private Long id;
+    private Long sellerId;
+    private String title;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Double currentHighestBid;
+    private Boolean isSold;
+    private Long highestBidderId;
+}
@@ -0,0 +1,16 @@
+package com.auction.my.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pushed to an auction's watchers when a late bid moves its end time.
+ */
+@Getter
+@AllArgsConstructor
+public class AuctionEndTimeDto {
+    private Long auctionId;
+    private LocalDateTime endTime;
+}
@@ -20,12 +20,12 @@ public class AuctionItemDto {
     private LocalDateTime startTime;
     private LocalDateTime endTime;
     private Long sellerId;
-    private String sellerImage ;
+    private String sellerImageUrl;
     private String sellerUsername;
     private Long currentHighestBidId;
     private String currentHighestBidderUsername;
-    private String frontImage;
-    private List<String> additionalImages;
+    private String frontImageUrl;
+    private List<String> additionalImageUrls;
     private String category;
     private String brand;
     private Long views = 0L;
@@ -1,12 +1,20 @@
 package com.auction.my.dto;
 
+import com.auction.my.service.ImageStore;
 import lombok.*;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * Listing view of an auction: scalar columns only, with the front image as a
+ * URL the client loads separately, and its thumbnails once they exist.
+ * Built straight from a JPQL constructor expression, so listings never read
+ * image data.
+ */
 @Setter
 @Getter
-@AllArgsConstructor
 @NoArgsConstructor
 public class AuctionItemDtoWithoutImages {
     private Long id;
@@ -23,4 +31,74 @@ public class AuctionItemDtoWithoutImages {
     private String category;
     private String brand;
     private Long views = 0L;
+    private String frontImageUrl;
+    // Thumbnail URLs by box size ("160", "480", "1024"); empty until they are made
+    private Map<String, String> thumbnailUrls = new LinkedHashMap<>();
+    private Integer imageWidth;
+    private Integer imageHeight;
+    private String dominantColor;
+
+    public AuctionItemDtoWithoutImages(Long id, String title, String description, Double startingPrice,
+                                       Double currentHighestBid, LocalDateTime startTime, LocalDateTime endTime,
+                                       Long sellerId, String sellerUsername, Long currentHighestBidId,
+                                       String currentHighestBidderUsername, String category, String brand,
+                                       Long views, String frontImageHash) {
+        this(id, title, description, startingPrice, currentHighestBid, startTime, endTime, sellerId, sellerUsername,
+                currentHighestBidId, currentHighestBidderUsername, category, brand, views, frontImageHash,
+                null, null, null, null, null, null);
+    }
+
+    public AuctionItemDtoWithoutImages(Long id, String title, String description, Double startingPrice,
+                                       Double currentHighestBid, LocalDateTime startTime, LocalDateTime endTime,
+                                       Long sellerId, String sellerUsername, Long currentHighestBidId,
+                                       String currentHighestBidderUsername, String category, String brand,
+                                       Long views, String frontImageHash, String smallHash, String mediumHash,
+                                       String largeHash, Integer imageWidth, Integer imageHeight,
+                                       String dominantColor) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.startingPrice = startingPrice;
+        this.currentHighestBid = currentHighestBid;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.sellerId = sellerId;
+        this.sellerUsername = sellerUsername;
+        this.currentHighestBidId = currentHighestBidId;
+        this.currentHighestBidderUsername = currentHighestBidderUsername;
+        this.category = category;
+        this.brand = brand;
+        this.views = views;
+        this.frontImageUrl = ImageStore.url(frontImageHash);
+        if (smallHash != null) {
+            thumbnailUrls.put("160", ImageStore.url(smallHash));
+            thumbnailUrls.put("480", ImageStore.url(mediumHash));
+            thumbnailUrls.put("1024", ImageStore.url(largeHash));
+        }
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.dominantColor = dominantColor;
+    }
+
+    public AuctionItemDtoWithoutImages(AuctionItemDtoWithoutImages other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.description = other.description;
+        this.startingPrice = other.startingPrice;
+        this.currentHighestBid = other.currentHighestBid;
+        this.startTime = other.startTime;
+        this.endTime = other.endTime;
+        this.sellerId = other.sellerId;
+        this.sellerUsername = other.sellerUsername;
+        this.currentHighestBidId = other.currentHighestBidId;
+        this.currentHighestBidderUsername = other.currentHighestBidderUsername;
+        this.category = other.category;
+        this.brand = other.brand;
+        this.views = other.views;
+        this.frontImageUrl = other.frontImageUrl;
+        this.thumbnailUrls = new LinkedHashMap<>(other.thumbnailUrls);
+        this.imageWidth = other.imageWidth;
+        this.imageHeight = other.imageHeight;
+        this.dominantColor = other.dominantColor;
+    }
 }
@@ -0,0 +1,15 @@
+package com.auction.my.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A type-ahead suggestion: an auction title, brand or category.
+ */
+@Getter
+@AllArgsConstructor
+public class AuctionSuggestion {
+    private String text;
+    // "title", "brand" or "category"
+    private String type;
+}
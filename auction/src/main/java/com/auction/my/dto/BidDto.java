@@ -1,5 +1,6 @@
 package com.auction.my.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 
 import java.time.LocalDateTime;
@@ -17,6 +18,9 @@ public class BidDto {
     private LocalDateTime bidTime;
     private String auctionTitle;
     private LocalDateTime auctionEndTime;
+    // Only set where the caller's standing matters: whether they lead the auction.
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean winning;
 
     public BidDto(Long id, Long auctionId, Long bidderId, String bidderUsername, Double amount, LocalDateTime bidTime, LocalDateTime auctionEndTime, String auctionTitle) {
         this.id = id;
@@ -18,8 +18,11 @@ public class CreateAuctionRequest {
     private Double startingPrice;
     private LocalDateTime startTime;
     private LocalDateTime endTime;
+    // Either Base64 in frontImage, or the hash of an image uploaded to /api/images
     private String frontImage;
+    private String frontImageHash;
     private String category;
     private String brand;
     private List<String> additionalImages;
+    private List<String> additionalImageHashes;
 }
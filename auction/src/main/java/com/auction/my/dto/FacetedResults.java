@@ -0,0 +1,14 @@
+package com.auction.my.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Search results together with their facet counts.
+ */
+@Getter
+@AllArgsConstructor
+public class FacetedResults<T> {
+    private T results;
+    private SearchFacets facets;
+}
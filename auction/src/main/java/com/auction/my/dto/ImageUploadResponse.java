@@ -0,0 +1,15 @@
+package com.auction.my.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * An uploaded image: pass {@code hash} when creating an auction, load
+ * {@code url} to display it.
+ */
+@Getter
+@AllArgsConstructor
+public class ImageUploadResponse {
+    private String hash;
+    private String url;
+}
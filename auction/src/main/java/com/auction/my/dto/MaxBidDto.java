@@ -0,0 +1,21 @@
+package com.auction.my.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Outcome of registering a maximum bid: where the auction stands once the
+ * proxy bids have been resolved.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MaxBidDto {
+    private Long auctionId;
+    private Double maxAmount;
+    private Double currentHighestBid;
+    private boolean leading;
+}
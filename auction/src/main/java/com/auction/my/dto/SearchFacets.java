@@ -0,0 +1,20 @@
+package com.auction.my.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Number of auctions per category, brand and price range for a search.
+ * Each count applies every other filter of the search but not its own, so
+ * it is the number of results choosing that value would give.
+ */
+@Getter
+@AllArgsConstructor
+public class SearchFacets {
+    private Map<String, Integer> categories;
+    private Map<String, Integer> brands;
+    // Keyed by range, such as "10-25" or "10000+"
+    private Map<String, Integer> prices;
+}
@@ -0,0 +1,18 @@
+package com.auction.my.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Scalar view of a {@code ProxyBid}, used to seed the bid engine.
+ */
+@Getter
+@AllArgsConstructor
+public class StandingProxyBid {
+    private Long bidderId;
+    private String bidderName;
+    private Double maxAmount;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,22 @@
+package com.auction.my.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user's best bid on one auction, read by a native window query.
+ */
+public interface UserStandingBid {
+    Long getId();
+
+    Long getAuctionId();
+
+    Double getAmount();
+
+    LocalDateTime getBidTime();
+
+    String getAuctionTitle();
+
+    LocalDateTime getAuctionEndTime();
+
+    Boolean getWinning();
+}
@@ -16,17 +16,17 @@ public class AuctionImage {
 
 
 
-    @Lob
-    @Column(nullable = false)
-    private byte[] image;
+    // SHA-256 of the image in the ImageStore
+    @Column(length = 64)
+    private String imageHash;
 
     @ManyToOne
     @JoinColumn(name = "auction_item_id", nullable = false)
     private AuctionItem auctionItem;
 
-    public AuctionImage(Long id, byte[] image, AuctionItem auctionItem) {
+    public AuctionImage(Long id, String imageHash, AuctionItem auctionItem) {
         this.id = id;
-        this.image = image;
+        this.imageHash = imageHash;
         this.auctionItem = auctionItem;
     }
 
@@ -7,6 +7,10 @@ import java.util.Set;
 
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_auction_item_end_time_id", columnList = "endTime, id"),
+        @Index(name = "idx_auction_item_seller_end_time_id", columnList = "seller_id, endTime, id")
+})
 @AllArgsConstructor
 @Getter
 @Setter
@@ -41,6 +45,16 @@ public class AuctionItem {
     @Column
     private Double currentHighestBid;
 
+    // The current top bid, kept up to date with every accepted bid so that
+    // listings and notifications never have to load the bids collection.
+    @Column
+    private Long highestBidId;
+
+    @Column
+    private Long highestBidderId;
+
+    @Column
+    private String highestBidderName;
 
     private String brand = "other";
 
@@ -51,17 +65,16 @@ public class AuctionItem {
     @Column
     private  Boolean isSold ;
 
-    @Lob
-    @Column(nullable = false)
-    @Basic(fetch = FetchType.EAGER)
-    private byte[] frontImage;
+    // SHA-256 of the front image in the ImageStore
+    @Column(length = 64)
+    private String frontImageHash;
 
     @OneToMany(mappedBy = "auctionItem", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<AuctionImage> additionalImages;
 
 
 
-    public AuctionItem(String category, Long id, String title, String description, Double startingPrice, LocalDateTime startTime, LocalDateTime endTime, User seller, Set<Bid> bids, Double currentHighestBid, Boolean isSold, byte[] frontImage, Set<AuctionImage> additionalImages) {
+    public AuctionItem(String category, Long id, String title, String description, Double startingPrice, LocalDateTime startTime, LocalDateTime endTime, User seller, Set<Bid> bids, Double currentHighestBid, Boolean isSold, String frontImageHash, Set<AuctionImage> additionalImages) {
         this.category = category;
         this.id = id;
 
@@ -74,7 +87,7 @@ public class AuctionItem {
         this.bids = bids;
         this.currentHighestBid = currentHighestBid;
         this.isSold = isSold;
-        this.frontImage = frontImage;
+        this.frontImageHash = frontImageHash;
         this.additionalImages = additionalImages;
         this.views = 0L ;
     }
@@ -124,8 +137,8 @@ public class AuctionItem {
         return isSold;
     }
 
-    public byte[] getFrontImage() {
-        return frontImage;
+    public String getFrontImageHash() {
+        return frontImageHash;
     }
 
     public Set<AuctionImage> getAdditionalImages() {
@@ -176,8 +189,8 @@ public class AuctionItem {
         isSold = sold;
     }
 
-    public void setFrontImage(byte[] frontImage) {
-        this.frontImage = frontImage;
+    public void setFrontImageHash(String frontImageHash) {
+        this.frontImageHash = frontImageHash;
     }
 
     public void setAdditionalImages(Set<AuctionImage> additionalImages) {
@@ -5,6 +5,10 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_bid_auction_amount_id", columnList = "auction_item_id, amount, id"),
+        @Index(name = "idx_bid_bidder_bid_time_id", columnList = "bidder_id, bidTime, id")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 
@@ -66,6 +70,19 @@ public class Bid {
 
     @Column(nullable = false)
     private LocalDateTime bidTime;
+
+    // Set when the bid was written from the bid journal; makes replay idempotent.
+    @Column(unique = true)
+    private Long journalSequence;
+
+    public Long getJournalSequence() {
+        return journalSequence;
+    }
+
+    public void setJournalSequence(Long journalSequence) {
+        this.journalSequence = journalSequence;
+    }
+
     public Bid(AuctionItem auctionItem, User bidder, double amount, LocalDateTime bidTime) {
         this.auctionItem = auctionItem;
         this.bidder = bidder;
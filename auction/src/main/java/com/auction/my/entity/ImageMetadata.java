@@ -0,0 +1,46 @@
+package com.auction.my.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * What the thumbnail pipeline learned about a stored image, keyed by its
+ * hash. The thumbnails are images in the store themselves; a size the image
+ * does not exceed points at the image itself. Images that could not be
+ * decoded have no dimensions and no thumbnails.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+public class ImageMetadata {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    private Integer width;
+
+    private Integer height;
+
+    @Column(nullable = false)
+    private Long byteSize;
+
+    // #rrggbb, for placeholders while the image loads
+    @Column(length = 7)
+    private String dominantColor;
+
+    // Fits in 160x160
+    @Column(length = 64)
+    private String smallHash;
+
+    // Fits in 480x480
+    @Column(length = 64)
+    private String mediumHash;
+
+    // Fits in 1024x1024
+    @Column(length = 64)
+    private String largeHash;
+}
@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = @Index(name = "idx_notification_user_timestamp_id", columnList = "user_id, timestamp, id"))
 @Builder
 public class Notification {
 
@@ -0,0 +1,45 @@
+package com.auction.my.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A standing maximum bid: the bid engine bids on the user's behalf, in
+ * increments, up to {@code maxAmount}.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"auction_item_id", "bidder_id"}))
+public class ProxyBid {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "auction_item_id", nullable = false)
+    private AuctionItem auctionItem;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "bidder_id", nullable = false)
+    private User bidder;
+
+    @Column(nullable = false)
+    private Double maxAmount;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    public ProxyBid(AuctionItem auctionItem, User bidder, Double maxAmount, LocalDateTime createdAt) {
+        this.auctionItem = auctionItem;
+        this.bidder = bidder;
+        this.maxAmount = maxAmount;
+        this.createdAt = createdAt;
+    }
+}
@@ -69,9 +69,9 @@ public class User implements UserDetails {
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Notification> notifications;
 
-    @Lob
-    @Column(columnDefinition = "TEXT")
-    private String image;
+    // SHA-256 of the profile picture in the ImageStore
+    @Column(length = 64)
+    private String imageHash;
 
     // You may keep the other constructor with arguments
     public User(String username, String email, String gender, String age, String address, String phone,
@@ -178,8 +178,8 @@ public class User implements UserDetails {
         this.notifications = notifications;
     }
 
-    public void setImage(String image) {
-        this.image = image;
+    public void setImageHash(String imageHash) {
+        this.imageHash = imageHash;
     }
 
     @Override
@@ -273,8 +273,8 @@ public class User implements UserDetails {
         return notifications;
     }
 
-    public String getImage() {
-        return image;
+    public String getImageHash() {
+        return imageHash;
     }
     public enum Role {
         ADMIN, CLIENT
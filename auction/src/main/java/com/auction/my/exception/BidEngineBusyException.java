@@ -0,0 +1,11 @@
+package com.auction.my.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class BidEngineBusyException extends RuntimeException {
+    public BidEngineBusyException(String message) {
+        super(message);
+    }
+}
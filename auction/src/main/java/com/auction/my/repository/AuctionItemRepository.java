@@ -1,19 +1,23 @@
 package com.auction.my.repository;
 
 
+import com.auction.my.dto.AuctionBidSnapshot;
+import com.auction.my.dto.AuctionItemDtoWithoutImages;
 import com.auction.my.dto.AuctionSummaryDto;
 import com.auction.my.entity.AuctionItem;
 import com.auction.my.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,11 +32,142 @@ public interface AuctionItemRepository extends JpaRepository<AuctionItem, Long>
     List<AuctionItem> findByEndTimeBetween(LocalDateTime startTime, LocalDateTime endTime);
 
     Page<AuctionItem> findBySellerId(Long sellerId, Pageable pageable);
-    List<AuctionItem> findAllByEndTimeBeforeAndIsSoldFalse(LocalDateTime endTime);
     Page<AuctionItem> findByEndTimeAfter(LocalDateTime dateTime, Pageable pageable);
+
+    // Listings select scalar columns only; images are served from the ImageStore,
+    // with thumbnails once the ThumbnailService has made them. sellerUsername is
+    // the seller's display name (s.username, i.e. User.getFullName()), as on the
+    // auction details, not User.getUsername(), which returns the id.
+    String LISTING = "SELECT new com.auction.my.dto.AuctionItemDtoWithoutImages(a.id, a.title, a.description, " +
+            "a.startingPrice, a.currentHighestBid, a.startTime, a.endTime, s.id, s.username, a.highestBidId, " +
+            "a.highestBidderName, a.category, a.brand, a.views, a.frontImageHash, " +
+            "m.smallHash, m.mediumHash, m.largeHash, m.width, m.height, m.dominantColor) " +
+            "FROM AuctionItem a JOIN a.seller s LEFT JOIN ImageMetadata m ON m.hash = a.frontImageHash ";
+    String CRITERIA = "(LOWER(a.category) = LOWER(:category) OR :category IS NULL) AND " +
+            "(LOWER(a.brand) = LOWER(:brand) OR :brand IS NULL) AND " +
+            "(a.startingPrice >= :minPrice OR :minPrice IS NULL) AND " +
+            "(a.startingPrice <= :maxPrice OR :maxPrice IS NULL)";
+    // Full-text search over search_vector (see SearchSchema), in SQL: JPQL has no @@ operator
+    String SEARCH = "FROM auction_item a, websearch_to_tsquery('english', :query) q " +
+            "WHERE a.search_vector @@ q AND " +
+            "(lower(a.category) = lower(CAST(:category AS text)) OR CAST(:category AS text) IS NULL) AND " +
+            "(lower(a.brand) = lower(CAST(:brand AS text)) OR CAST(:brand AS text) IS NULL) AND " +
+            "(a.starting_price >= CAST(:minPrice AS float8) OR CAST(:minPrice AS float8) IS NULL) AND " +
+            "(a.starting_price <= CAST(:maxPrice AS float8) OR CAST(:maxPrice AS float8) IS NULL) ";
+    // Keyset (cursor) pagination in end time order, see KeysetCursor
+    String AFTER = "(a.endTime, a.id) > (:endTime, :id) ORDER BY a.endTime, a.id";
+    // Started and not ended yet
+    String LIVE = "a.startTime <= :now AND a.endTime > :now ";
+
+    @Query(LISTING + "WHERE a.id = :id")
+    Optional<AuctionItemDtoWithoutImages> findListingById(@Param("id") Long id);
+
+    @Query(value = LISTING, countQuery = "SELECT COUNT(a) FROM AuctionItem a")
+    Page<AuctionItemDtoWithoutImages> findListings(Pageable pageable);
+
+    @Query(value = LISTING + "WHERE " + LIVE,
+            countQuery = "SELECT COUNT(a) FROM AuctionItem a WHERE " + LIVE)
+    Page<AuctionItemDtoWithoutImages> findActiveListings(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query(LISTING + "WHERE " + LIVE)
+    List<AuctionItemDtoWithoutImages> findAllActiveListings(@Param("now") LocalDateTime now);
+
+    @Query(value = LISTING + "WHERE s.id = :sellerId",
+            countQuery = "SELECT COUNT(a) FROM AuctionItem a WHERE a.seller.id = :sellerId")
+    Page<AuctionItemDtoWithoutImages> findListingsBySellerId(@Param("sellerId") Long sellerId, Pageable pageable);
+
+    @Query(value = LISTING + "WHERE " + CRITERIA,
+            countQuery = "SELECT COUNT(a) FROM AuctionItem a WHERE " + CRITERIA)
+    Page<AuctionItemDtoWithoutImages> findListingsByCriteria(@Param("category") String category,
+                                                             @Param("brand") String brand,
+                                                             @Param("minPrice") Double minPrice,
+                                                             @Param("maxPrice") Double maxPrice,
+                                                             Pageable pageable);
+
+    @Query(LISTING + "WHERE " + AFTER)
+    List<AuctionItemDtoWithoutImages> findListingsAfter(@Param("endTime") LocalDateTime endTime,
+                                                        @Param("id") Long id,
+                                                        Limit limit);
+
+    @Query(LISTING + "WHERE " + LIVE + "AND " + AFTER)
+    List<AuctionItemDtoWithoutImages> findActiveListingsAfter(@Param("now") LocalDateTime now,
+                                                              @Param("endTime") LocalDateTime endTime,
+                                                              @Param("id") Long id,
+                                                              Limit limit);
+
+    @Query(LISTING + "WHERE s.id = :sellerId AND " + AFTER)
+    List<AuctionItemDtoWithoutImages> findListingsBySellerIdAfter(@Param("sellerId") Long sellerId,
+                                                                  @Param("endTime") LocalDateTime endTime,
+                                                                  @Param("id") Long id,
+                                                                  Limit limit);
+
+    @Query(LISTING + "WHERE " + CRITERIA + " AND " + AFTER)
+    List<AuctionItemDtoWithoutImages> findListingsByCriteriaAfter(@Param("category") String category,
+                                                                  @Param("brand") String brand,
+                                                                  @Param("minPrice") Double minPrice,
+                                                                  @Param("maxPrice") Double maxPrice,
+                                                                  @Param("endTime") LocalDateTime endTime,
+                                                                  @Param("id") Long id,
+                                                                  Limit limit);
+
+    @Query(value = "SELECT a.id " + SEARCH + "ORDER BY ts_rank_cd(a.search_vector, q) DESC, a.id",
+            countQuery = "SELECT COUNT(*) " + SEARCH,
+            nativeQuery = true)
+    Page<Long> searchIds(@Param("query") String query,
+                         @Param("category") String category,
+                         @Param("brand") String brand,
+                         @Param("minPrice") Double minPrice,
+                         @Param("maxPrice") Double maxPrice,
+                         Pageable pageable);
+
+    @Query(value = "SELECT a.id " + SEARCH + "AND (a.end_time, a.id) > (:endTime, :id) ORDER BY a.end_time, a.id",
+            nativeQuery = true)
+    List<Long> searchIdsAfter(@Param("query") String query,
+                              @Param("category") String category,
+                              @Param("brand") String brand,
+                              @Param("minPrice") Double minPrice,
+                              @Param("maxPrice") Double maxPrice,
+                              @Param("endTime") LocalDateTime endTime,
+                              @Param("id") Long id,
+                              Limit limit);
+
+    @Query(value = "SELECT a.id FROM auction_item a WHERE a.search_vector @@ websearch_to_tsquery('english', :query)",
+            nativeQuery = true)
+    List<Long> searchAllIds(@Param("query") String query);
+
+    @Query(LISTING + "WHERE a.id IN :ids")
+    List<AuctionItemDtoWithoutImages> findListingsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.auction.my.dto.AuctionBidSnapshot(a.id, a.seller.id, a.title, a.startTime, a.endTime, " +
+            "a.currentHighestBid, a.isSold, a.highestBidderId) FROM AuctionItem a WHERE a.id = :id")
+    Optional<AuctionBidSnapshot> findBidSnapshotById(@Param("id") Long id);
+
+    /**
+     * Ends an open auction at {@code now}. Only the end time is written: the
+     * price, the highest bid pointer and the views are moved by the
+     * write-behind and the view counter, and a full save would put back the
+     * values it had loaded. Returns 0 if the auction is sold or has ended.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE AuctionItem a SET a.endTime = :now " +
+            "WHERE a.id = :id AND a.endTime > :now AND (a.isSold IS NULL OR a.isSold = false)")
+    int endNow(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Fills the highest bid pointer of auctions that had bids before it was
+     * introduced. A no-op once every auction with bids has one.
+     */
+    @Transactional
     @Modifying
-    @Query("UPDATE AuctionItem ai SET ai.views = :views WHERE ai.id = :id")
-    void updateViews(@Param("views") Long views, @Param("id") Long id);
+    @Query(value = "UPDATE auction_item a SET highest_bid_id = b.id, highest_bidder_id = b.bidder_id, " +
+            "highest_bidder_name = u.username " +
+            "FROM (SELECT DISTINCT ON (auction_item_id) id, auction_item_id, bidder_id FROM bid " +
+            "      WHERE auction_item_id IN (SELECT id FROM auction_item WHERE highest_bid_id IS NULL) " +
+            "      ORDER BY auction_item_id, amount DESC, id) b " +
+            "JOIN users u ON u.id = b.bidder_id " +
+            "WHERE a.id = b.auction_item_id", nativeQuery = true)
+    int backfillHighestBids();
 
     Page<AuctionItem> findByEndTimeAfterAndIsSoldFalse(LocalDateTime now, Pageable pageable);
     @Query("SELECT new com.auction.my.dto.AuctionSummaryDto(a.id, a.title, a.currentHighestBid, a.endTime) " +
@@ -54,17 +189,4 @@ List<Object[]> findAuctionItemsByMonth();
             "GROUP BY EXTRACT(MONTH FROM ai.startTime)")
     List<Object[]> countItemsCreatedByMonth(@Param("user") User user);
 
-
-    @Query("SELECT a FROM AuctionItem a WHERE " +
-            "(LOWER(a.title) LIKE LOWER(CONCAT('%', :title, '%')) OR :title IS NULL) AND " +
-            "(LOWER(a.category) LIKE LOWER(CONCAT('%', :category, '%')) OR :category IS NULL) AND " +
-            "(LOWER(a.brand) LIKE LOWER(CONCAT('%', :brand, '%')) OR :brand IS NULL) AND " +
-            "(a.startingPrice >= :minPrice OR :minPrice IS NULL) AND " +
-            "(a.startingPrice <= :maxPrice OR :maxPrice IS NULL)")
-    Page<AuctionItem> findAllByCriteria(@Param("title") String title,
-                                        @Param("category") String category,
-                                        @Param("brand") String brand,
-                                        @Param("minPrice") Double minPrice,
-                                        @Param("maxPrice") Double maxPrice,
-                                        PageRequest pageRequest);
 }
@@ -1,9 +1,14 @@
 package com.auction.my.repository;
 
+import com.auction.my.dto.UserStandingBid;
 import com.auction.my.entity.Bid;
 import com.auction.my.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -27,12 +32,34 @@ public interface BidRepository extends JpaRepository<Bid, Long> {
     Page<Bid> findByAuctionItemIdOrderByAmountDesc(Long auctionItemId, Pageable pageable);
 
     Page<Bid> findByBidderOrderByBidTimeDesc(User bidder, Pageable pageable);
-    @Query("SELECT b FROM Bid b " +
-            "WHERE b.bidder = :user AND b.amount = (" +
-            "  SELECT MAX(b2.amount) FROM Bid b2 WHERE b2.auctionItem = b.auctionItem AND b2.bidder = :user" +
-            ")")
-    List<Bid> findHighestBidsByUser(@Param("user") User user);
+
+    Window<Bid> findByAuctionItemId(Long auctionItemId, ScrollPosition position, Sort sort, Limit limit);
+    Window<Bid> findByBidder(User bidder, ScrollPosition position, Sort sort, Limit limit);
+    /**
+     * The bidder's best bid on each auction they bid on, one row per auction,
+     * most recent first, and whether they currently lead it. Ranked and paged
+     * in the database.
+     */
+    @Query(value = "SELECT r.id AS id, r.auction_item_id AS auctionId, r.amount AS amount, r.bid_time AS bidTime, " +
+            "a.title AS auctionTitle, a.end_time AS auctionEndTime, " +
+            "COALESCE(a.highest_bidder_id = r.bidder_id, false) AS winning " +
+            "FROM (SELECT b.id, b.auction_item_id, b.bidder_id, b.amount, b.bid_time, " +
+            "             ROW_NUMBER() OVER (PARTITION BY b.auction_item_id ORDER BY b.amount DESC, b.id DESC) AS rn " +
+            "      FROM bid b WHERE b.bidder_id = :bidderId) r " +
+            "JOIN auction_item a ON a.id = r.auction_item_id " +
+            "WHERE r.rn = 1 " +
+            "ORDER BY r.bid_time DESC, r.id DESC",
+            countQuery = "SELECT COUNT(DISTINCT auction_item_id) FROM bid WHERE bidder_id = :bidderId",
+            nativeQuery = true)
+    Page<UserStandingBid> findStandingBidsByBidderId(@Param("bidderId") Long bidderId, Pageable pageable);
 
     Optional<Bid> findTopByAuctionItemIdOrderByAmountDesc(Long auctionItemId);
+
+    @Query("SELECT b.bidder.id FROM Bid b WHERE b.auctionItem.id = :auctionId AND b.id <> :excludedBidId " +
+            "ORDER BY b.amount DESC")
+    List<Long> findTopBidderIdsExcluding(@Param("auctionId") Long auctionId,
+                                         @Param("excludedBidId") Long excludedBidId,
+                                         Pageable pageable);
+
     Long countByBidder(User bidder);
 }
@@ -0,0 +1,21 @@
+package com.auction.my.repository;
+
+import com.auction.my.entity.ImageMetadata;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ImageMetadataRepository extends JpaRepository<ImageMetadata, String> {
+
+    /**
+     * Hashes of auction images the thumbnail pipeline has not processed.
+     */
+    @Query("SELECT a.frontImageHash FROM AuctionItem a WHERE a.frontImageHash IS NOT NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM ImageMetadata m WHERE m.hash = a.frontImageHash) " +
+            "UNION SELECT i.imageHash FROM AuctionImage i WHERE i.imageHash IS NOT NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM ImageMetadata m WHERE m.hash = i.imageHash)")
+    List<String> findUnprocessedAuctionImageHashes();
+}
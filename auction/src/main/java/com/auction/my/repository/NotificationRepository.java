@@ -2,7 +2,11 @@ package com.auction.my.repository;
 
 import com.auction.my.entity.Notification;
 import com.auction.my.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -25,6 +29,9 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
 
     Page<Notification> findByUserOrderByTimestampDesc(User user, Pageable pageable);
 
+    Window<Notification> findByUser(User user, ScrollPosition position, Sort sort, Limit limit);
+    Window<Notification> findByUserAndIsReadFalse(User user, ScrollPosition position, Sort sort, Limit limit);
+
 
     @Modifying
     @Query("UPDATE Notification n SET n.isRead = true WHERE n.user.id = :userId")
@@ -0,0 +1,18 @@
+package com.auction.my.repository;
+
+import com.auction.my.dto.StandingProxyBid;
+import com.auction.my.entity.ProxyBid;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProxyBidRepository extends JpaRepository<ProxyBid, Long> {
+
+    @Query("SELECT new com.auction.my.dto.StandingProxyBid(p.bidder.id, p.bidder.username, p.maxAmount, p.createdAt) " +
+            "FROM ProxyBid p WHERE p.auctionItem.id = :auctionId")
+    List<StandingProxyBid> findStandingByAuctionId(@Param("auctionId") Long auctionId);
+}
@@ -57,7 +57,7 @@ public class AdminService {
         dto.setUsername(user.getUsername());
         dto.setPhone(user.getPhone());
         dto.setRole(user.getRole().name());
-        dto.setImage(user.getImage());
+        dto.setImage(ImageStore.url(user.getImageHash()));
 
         dto.setGender(user.getGender());
         dto.setAge(user.getAge());
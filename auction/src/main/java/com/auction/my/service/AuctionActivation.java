@@ -0,0 +1,83 @@
+package com.auction.my.service;
+
+import com.auction.my.dto.AuctionBidSnapshot;
+import com.auction.my.repository.AuctionItemRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Starts auctions for the {@link AuctionStartScheduler} as their start time
+ * comes.
+ * <p>
+ * Nothing has to be written: bids and the active listings compare the start
+ * time with the clock. Starting makes the auction ready for the bidders who
+ * were waiting for it, so they do not all find it cold at once: its state is
+ * loaded onto its bid engine shard, it is added to the ending-soon and
+ * suggestion indexes and its detail response is cached. Then an
+ * {@link AuctionStartedEvent} is published.
+ */
+@Service
+public class AuctionActivation {
+
+    private static final Logger log = LoggerFactory.getLogger(AuctionActivation.class);
+
+    private final AuctionItemRepository auctionItemRepository;
+    private final AuctionStartScheduler startScheduler;
+    private final AuctionService auctionService;
+    private final BidEngine bidEngine;
+    private final EndingSoonIndex endingSoonIndex;
+    private final SuggestionIndex suggestionIndex;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public AuctionActivation(AuctionItemRepository auctionItemRepository,
+                             AuctionStartScheduler startScheduler,
+                             AuctionService auctionService,
+                             BidEngine bidEngine,
+                             EndingSoonIndex endingSoonIndex,
+                             SuggestionIndex suggestionIndex,
+                             ApplicationEventPublisher eventPublisher) {
+        this.auctionItemRepository = auctionItemRepository;
+        this.startScheduler = startScheduler;
+        this.auctionService = auctionService;
+        this.bidEngine = bidEngine;
+        this.endingSoonIndex = endingSoonIndex;
+        this.suggestionIndex = suggestionIndex;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    public void start() {
+        startScheduler.start(this::activate);
+    }
+
+    public void activate(List<Long> auctionIds) {
+        for (Long auctionId : auctionIds) {
+            try {
+                activate(auctionId);
+            } catch (RuntimeException e) {
+                // Still open for bids; only the warm-up and the announcement are lost
+                log.error("Failed to start auction {}", auctionId, e);
+            }
+        }
+        log.debug("Started {} auctions", auctionIds.size());
+    }
+
+    private void activate(Long auctionId) {
+        AuctionBidSnapshot auction = auctionItemRepository.findBidSnapshotById(auctionId).orElse(null);
+        if (auction == null || Boolean.TRUE.equals(auction.getIsSold())) {
+            // Deleted or closed before it started
+            return;
+        }
+        bidEngine.warm(auctionId);
+        endingSoonIndex.refresh(auctionId);
+        suggestionIndex.refresh(auctionId);
+        auctionService.getAuctionDetailJson(auctionId);
+        eventPublisher.publishEvent(new AuctionStartedEvent(auctionId, auction.getTitle(), auction.getSellerId(),
+                auction.getStartTime(), auction.getEndTime()));
+    }
+}
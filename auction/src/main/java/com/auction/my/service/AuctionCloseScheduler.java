@@ -0,0 +1,143 @@
+package com.auction.my.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Closes every auction when its end time comes rather than at the next poll.
+ * <p>
+ * Each unsold auction has a deadline in a {@link DeadlineTimer}, loaded at
+ * startup and replaced whenever the auction is created, changed or closed.
+ * The timer takes deadlines as they expire, up to {@code auction.close.chunk-size}
+ * at a time, and hands each such chunk to a fixed pool of closers with a
+ * bounded queue. When that queue is
+ * full the timer thread closes the chunk itself, so closes slow down instead
+ * of being dropped.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class AuctionCloseScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(AuctionCloseScheduler.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DeadlineTimer deadlines;
+    // Auctions queued or being closed, so a close is never run twice at once
+    private final Set<Long> closing = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor closers;
+    private final int chunkSize;
+
+    private volatile Consumer<List<Long>> closer;
+
+    public AuctionCloseScheduler(JdbcTemplate jdbcTemplate,
+                                 @Value("${auction.close.threads:2}") int threads,
+                                 @Value("${auction.close.queue-capacity:1000}") int queueCapacity,
+                                 @Value("${auction.close.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkSize = chunkSize;
+        this.deadlines = new DeadlineTimer("auction-close-timer", chunkSize);
+        AtomicInteger count = new AtomicInteger();
+        this.closers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "auction-closer-" + count.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PostConstruct
+    public void load() {
+        jdbcTemplate.query("SELECT id, end_time FROM auction_item WHERE is_sold IS NOT TRUE",
+                (RowCallbackHandler) rs -> deadlines.schedule(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime()));
+        log.info("Close scheduler loaded with {} unsold auctions", deadlines.size());
+    }
+
+    /**
+     * Starts closing auctions as they end, a chunk at a time, with
+     * {@code closer}; auctions that ended while the application was down are
+     * closed right away.
+     */
+    public void start(Consumer<List<Long>> closer) {
+        this.closer = closer;
+        deadlines.start(this::submit);
+    }
+
+    /**
+     * Rereads an auction's end time after it was created, changed or closed.
+     */
+    public void refresh(Long auctionId) {
+        List<LocalDateTime> endTimes = jdbcTemplate.query(
+                "SELECT end_time FROM auction_item WHERE id = ? AND is_sold IS NOT TRUE",
+                (rs, rowNum) -> rs.getTimestamp(1).toLocalDateTime(),
+                auctionId);
+        if (endTimes.isEmpty()) {
+            deadlines.cancel(auctionId);
+        } else {
+            deadlines.schedule(auctionId, endTimes.get(0));
+        }
+    }
+
+    /**
+     * Moves an open auction's deadline to a new end time that is already
+     * known, without reading the database.
+     */
+    public void reschedule(Long auctionId, LocalDateTime endTime) {
+        deadlines.reschedule(auctionId, endTime);
+    }
+
+    // Hands the auctions to the closers, except those already queued
+    private void submit(Collection<Long> auctionIds) {
+        List<Long> chunk = new ArrayList<>(Math.min(chunkSize, auctionIds.size()));
+        for (Long auctionId : auctionIds) {
+            if (closing.add(auctionId)) {
+                chunk.add(auctionId);
+            }
+            if (chunk.size() == chunkSize) {
+                execute(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            execute(chunk);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        deadlines.stop();
+        closers.shutdown();
+        closers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private void execute(List<Long> chunk) {
+        closers.execute(() -> close(chunk));
+    }
+
+    private void close(List<Long> chunk) {
+        try {
+            closer.accept(chunk);
+        } catch (RuntimeException e) {
+            // Picked up again by the sweep for expired auctions
+            log.error("Failed to close auctions {}", chunk, e);
+        } finally {
+            closing.removeAll(chunk);
+        }
+    }
+}
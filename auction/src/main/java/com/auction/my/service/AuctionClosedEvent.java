@@ -0,0 +1,14 @@
+package com.auction.my.service;
+
+import java.util.List;
+
+/**
+ * Published by the {@link AuctionSettlement} for every auction it closed,
+ * and handled once the closing transaction has committed.
+ *
+ * @param winnerId   the highest bidder, or null without bids
+ * @param bidderIds  everyone who bid, the winner included
+ */
+public record AuctionClosedEvent(Long auctionId, String title, Long sellerId, Long winnerId, Double winningBid,
+                                 List<Long> bidderIds) {
+}
@@ -0,0 +1,169 @@
+package com.auction.my.service;
+
+import com.auction.my.dto.AuctionItemDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Auction detail responses as ready-to-send JSON, so a popular auction is
+ * read from the database and serialized once per change rather than once
+ * per view.
+ * <p>
+ * Concurrent misses for the same auction wait for a single load. Bids,
+ * updates and closes drop the entry; anything else that shows on the page
+ * (the seller's picture, say) is at most {@code auction.detail-cache.ttl-ms}
+ * old. The view count is not part of the cached bytes: views counted since
+ * the load are added on every read.
+ */
+@Component
+public class AuctionDetailCache {
+
+    private static final byte[] END = "}".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    private final int maxEntries;
+    private final long ttlMillis;
+    // A loading or loaded entry per auction; a removed one is never completed into the map again
+    private final ConcurrentHashMap<Long, CompletableFuture<Entry>> entries = new ConcurrentHashMap<>();
+
+    public AuctionDetailCache(ObjectMapper objectMapper,
+                              @Value("${auction.detail-cache.max-entries:10000}") int maxEntries,
+                              @Value("${auction.detail-cache.ttl-ms:60000}") long ttlMillis) {
+        this.objectMapper = objectMapper;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * The auction's detail JSON, loaded by {@code loader} on a miss. The
+     * loaded auction's views must include every view counted so far.
+     */
+    public byte[] get(Long auctionId, Supplier<AuctionItemDto> loader) {
+        CompletableFuture<Entry> future = entries.get(auctionId);
+        if (future != null && expired(future, System.currentTimeMillis())) {
+            entries.remove(auctionId, future);
+            future = null;
+        }
+        if (future == null) {
+            CompletableFuture<Entry> loading = new CompletableFuture<>();
+            future = entries.putIfAbsent(auctionId, loading);
+            if (future == null) {
+                return load(auctionId, loading, loader).bytes();
+            }
+        }
+        try {
+            return future.join().bytes();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Counts a view on the cached entry, if there is one.
+     */
+    public void recordView(Long auctionId) {
+        CompletableFuture<Entry> future = entries.get(auctionId);
+        if (future != null && loaded(future)) {
+            future.join().views.increment();
+        }
+    }
+
+    /**
+     * Drops the auction's entry after it changed; loads still running for it
+     * serve only the requests already waiting for them.
+     */
+    public void invalidate(Long auctionId) {
+        entries.remove(auctionId);
+    }
+
+    @Scheduled(fixedDelayString = "${auction.detail-cache.ttl-ms:60000}")
+    public void removeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(future -> expired(future, now));
+    }
+
+    private Entry load(Long auctionId, CompletableFuture<Entry> loading, Supplier<AuctionItemDto> loader) {
+        Entry entry;
+        try {
+            entry = serialize(loader.get());
+        } catch (RuntimeException e) {
+            // Not cached: the next request tries again
+            entries.remove(auctionId, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+        loading.complete(entry);
+        if (entries.size() > maxEntries) {
+            evictOldest();
+        }
+        return entry;
+    }
+
+    private void evictOldest() {
+        entries.entrySet().stream()
+                .filter(cached -> loaded(cached.getValue()))
+                .min(Comparator.comparingLong(cached -> cached.getValue().join().expiresAt))
+                .ifPresent(oldest -> entries.remove(oldest.getKey(), oldest.getValue()));
+    }
+
+    private static boolean loaded(CompletableFuture<Entry> future) {
+        return future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    private static boolean expired(CompletableFuture<Entry> future, long now) {
+        return loaded(future) && future.join().expiresAt <= now;
+    }
+
+    // Everything up to the views value, which is written last
+    private Entry serialize(AuctionItemDto auction) {
+        ObjectNode json = objectMapper.valueToTree(auction);
+        json.remove("views");
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(json);
+            byte[] views = (body.length > 2 ? ",\"views\":" : "\"views\":").getBytes(StandardCharsets.UTF_8);
+            byte[] prefix = Arrays.copyOf(body, body.length - 1 + views.length);
+            System.arraycopy(views, 0, prefix, body.length - 1, views.length);
+            long loadedViews = auction.getViews() != null ? auction.getViews() : 0;
+            return new Entry(prefix, loadedViews, System.currentTimeMillis() + ttlMillis);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize auction " + auction.getId(), e);
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] prefix;
+        private final long loadedViews;
+        private final LongAdder views = new LongAdder();
+        private final long expiresAt;
+
+        private Entry(byte[] prefix, long loadedViews, long expiresAt) {
+            this.prefix = prefix;
+            this.loadedViews = loadedViews;
+            this.expiresAt = expiresAt;
+        }
+
+        private byte[] bytes() {
+            byte[] count = Long.toString(loadedViews + views.sum()).getBytes(StandardCharsets.UTF_8);
+            byte[] bytes = Arrays.copyOf(prefix, prefix.length + count.length + END.length);
+            System.arraycopy(count, 0, bytes, prefix.length, count.length);
+            System.arraycopy(END, 0, bytes, prefix.length + count.length, END.length);
+            return bytes;
+        }
+    }
+}
@@ -2,11 +2,13 @@ package com.auction.my.service;
 
 import com.auction.my.dto.AuctionItemDto;
 import com.auction.my.dto.AuctionItemDtoWithoutImages;
+import com.auction.my.dto.AuctionSuggestion;
 import com.auction.my.dto.CreateAuctionRequest;
+import com.auction.my.dto.CursorPage;
+import com.auction.my.dto.SearchFacets;
 import com.auction.my.dto.UpdateAuctionRequest;
 import com.auction.my.entity.AuctionImage;
 import com.auction.my.entity.AuctionItem;
-import com.auction.my.entity.Bid;
 import com.auction.my.entity.User;
 import com.auction.my.exception.AuctionNotFoundException;
 import com.auction.my.exception.UnauthorizedException;
@@ -14,12 +16,18 @@ import com.auction.my.exception.ValidationException;
 import com.auction.my.repository.AuctionItemRepository;
 import com.auction.my.repository.UserRepository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
@@ -29,21 +37,64 @@ import java.util.stream.Collectors;
 @Service
 @Transactional
 public class AuctionService {
+    // Sorts before every auction in cursor order: end times are validated to be in the future.
+    private static final LocalDateTime FIRST_END_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+
     private final AuctionItemRepository auctionItemRepository;
     private final UserRepository userRepository;
     private final UserService userService;
-    private final NotificationService notificationService;
+    private final BidEngine bidEngine;
+    private final ImageUploadService imageUploadService;
+    private final ThumbnailService thumbnailService;
+    private final ViewCounter viewCounter;
+    private final TrendingTracker trendingTracker;
+    private final EndingSoonIndex endingSoonIndex;
+    private final FacetIndex facetIndex;
+    private final SuggestionIndex suggestionIndex;
+    private final SearchCache searchCache;
+    private final AuctionDetailCache auctionDetailCache;
+    private final AuctionCloseScheduler closeScheduler;
+    private final AuctionStartScheduler startScheduler;
+    private final AuctionSettlement auctionSettlement;
+    private final TransactionTemplate readOnlyTransaction;
 
     public AuctionService(
             AuctionItemRepository auctionItemRepository,
             UserRepository userRepository,
             UserService userService,
-            NotificationService notificationService
+            BidEngine bidEngine,
+            ImageUploadService imageUploadService,
+            ThumbnailService thumbnailService,
+            ViewCounter viewCounter,
+            TrendingTracker trendingTracker,
+            EndingSoonIndex endingSoonIndex,
+            FacetIndex facetIndex,
+            SuggestionIndex suggestionIndex,
+            SearchCache searchCache,
+            AuctionDetailCache auctionDetailCache,
+            AuctionCloseScheduler closeScheduler,
+            AuctionStartScheduler startScheduler,
+            AuctionSettlement auctionSettlement,
+            PlatformTransactionManager transactionManager
     ) {
         this.auctionItemRepository = auctionItemRepository;
         this.userRepository = userRepository;
         this.userService = userService;
-        this.notificationService = notificationService;
+        this.bidEngine = bidEngine;
+        this.imageUploadService = imageUploadService;
+        this.thumbnailService = thumbnailService;
+        this.viewCounter = viewCounter;
+        this.trendingTracker = trendingTracker;
+        this.endingSoonIndex = endingSoonIndex;
+        this.facetIndex = facetIndex;
+        this.suggestionIndex = suggestionIndex;
+        this.searchCache = searchCache;
+        this.auctionDetailCache = auctionDetailCache;
+        this.closeScheduler = closeScheduler;
+        this.startScheduler = startScheduler;
+        this.auctionSettlement = auctionSettlement;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     public AuctionItemDto createAuction(CreateAuctionRequest request) {
@@ -65,108 +116,221 @@ public class AuctionService {
         auction.setCategory(request.getCategory());
         auction.setCurrentHighestBid(request.getStartingPrice());
         auction.setIsSold(false);
-        // Validate and process front image
-        if (request.getFrontImage() == null || !isValidBase64(request.getFrontImage())) {
-            throw new ValidationException("Front image is required and must be a valid Base64 encoded string");
-        }
-        try {
-            byte[] frontImageBytes = Base64.getDecoder().decode(stripBase64Prefix(request.getFrontImage()));
-            auction.setFrontImage(frontImageBytes);
-        } catch (IllegalArgumentException e) {
-            throw new ValidationException("Invalid front image format. Must be Base64 encoded");
+        // Images are either uploaded beforehand to /api/images or sent inline as Base64
+        if (request.getFrontImageHash() != null) {
+            auction.setFrontImageHash(imageUploadService.requireStored(request.getFrontImageHash()));
+        } else if (request.getFrontImage() != null) {
+            auction.setFrontImageHash(imageUploadService.uploadBase64(request.getFrontImage()));
+        } else {
+            throw new ValidationException("Front image is required");
         }
 
-        // Handle additional images if present
-        if (request.getAdditionalImages() != null && !request.getAdditionalImages().isEmpty()) {
-            Set<AuctionImage> additionalImages = request.getAdditionalImages().stream()
-                    .map(base64String -> {
-                        if (!isValidBase64(base64String)) {
-                            throw new ValidationException("Each additional image must be a valid Base64 encoded string");
-                        }
-                        try {
-                            byte[] imageBytes = Base64.getDecoder().decode(stripBase64Prefix(base64String));
-                            AuctionImage auctionImage = new AuctionImage();
-                            auctionImage.setImage(imageBytes);
-                            auctionImage.setAuctionItem(auction);
-                            return auctionImage;
-                        } catch (IllegalArgumentException e) {
-                            throw new ValidationException("Invalid additional image format. Must be Base64 encoded");
-                        }
+        List<String> additionalImageHashes = new ArrayList<>();
+        if (request.getAdditionalImageHashes() != null) {
+            request.getAdditionalImageHashes().forEach(hash -> additionalImageHashes.add(imageUploadService.requireStored(hash)));
+        }
+        if (request.getAdditionalImages() != null) {
+            request.getAdditionalImages().forEach(base64 -> additionalImageHashes.add(imageUploadService.uploadBase64(base64)));
+        }
+        if (!additionalImageHashes.isEmpty()) {
+            Set<AuctionImage> additionalImages = additionalImageHashes.stream()
+                    .map(hash -> {
+                        AuctionImage auctionImage = new AuctionImage();
+                        auctionImage.setImageHash(hash);
+                        auctionImage.setAuctionItem(auction);
+                        return auctionImage;
                     })
                     .collect(Collectors.toSet());
             auction.setAdditionalImages(additionalImages);
         }
 
-        return convertToDto(auctionItemRepository.save(auction));
+        AuctionItem savedAuction = auctionItemRepository.save(auction);
+        refreshAfterCompletion(savedAuction);
+        thumbnailService.submit(savedAuction.getFrontImageHash());
+        if (savedAuction.getAdditionalImages() != null) {
+            savedAuction.getAdditionalImages().forEach(image -> thumbnailService.submit(image.getImageHash()));
+        }
+        return convertToDto(savedAuction);
     }
 
-    private String stripBase64Prefix(String base64String) {
-        if (base64String != null && base64String.contains(",")) {
-            return base64String.split(",")[1];
-        }
-        return base64String;
+    public AuctionItemDto getAuctionById(Long id) {
+        AuctionItemDto auction = convertToDto(findAuctionById(id));
+        auction.setViews((auction.getViews() != null ? auction.getViews() : 0) + viewCounter.pending(id));
+        return auction;
     }
 
-    private boolean isValidBase64(String base64String) {
-        if (base64String == null) {
-            return false;
-        }
-        try {
-            String cleanBase64 = stripBase64Prefix(base64String);
-            Base64.getDecoder().decode(cleanBase64);
-            return true;
-        } catch (IllegalArgumentException e) {
-            return false;
-        }
+    /**
+     * {@link #getAuctionById} as JSON, from the {@link AuctionDetailCache}.
+     * Requests waiting for another's load hold no transaction.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public byte[] getAuctionDetailJson(Long id) {
+        return auctionDetailCache.get(id, () -> readOnlyTransaction.execute(status -> getAuctionById(id)));
     }
 
-    public AuctionItemDto getAuctionById(Long id) {
-        return convertToDto(findAuctionById(id));
+    /**
+     * The auction without its additional images, read like a listing row.
+     */
+    public AuctionItemDtoWithoutImages getAuctionListingById(Long id) {
+        AuctionItemDtoWithoutImages auction = auctionItemRepository.findListingById(id)
+                .orElseThrow(() -> new AuctionNotFoundException("Auction not found with id: " + id));
+        auction.setViews((auction.getViews() != null ? auction.getViews() : 0) + viewCounter.pending(id));
+        return auction;
     }
 
-    public void updateViews(Long views, Long id){
-         auctionItemRepository.updateViews(views, id);
+    /**
+     * Counts a page view; it reaches the database with the next flush of
+     * the {@link ViewCounter}, and the in-memory listings right away. Only
+     * views of open auctions count towards trending: a closed one would come
+     * back into the ranking.
+     */
+    public void recordView(Long id) {
+        viewCounter.record(id);
+        if (endingSoonIndex.isOpen(id)) {
+            trendingTracker.recordView(id);
+        }
+        endingSoonIndex.recordView(id);
+        auctionDetailCache.recordView(id);
+    }
+
+    /**
+     * The most active open auctions, best first, as ranked by the
+     * {@link TrendingTracker}.
+     */
+    @Transactional(readOnly = true)
+    public List<AuctionItemDtoWithoutImages> getTrendingAuctions(int size) {
+        validatePaginationParameters(0, size);
+
+        // Auctions that ended but are not settled yet are still ranked; skip
+        // them here so they do not take the places of open ones.
+        List<Long> ranking = trendingTracker.ranking(Integer.MAX_VALUE).stream()
+                .filter(endingSoonIndex::isOpen)
+                .limit(size)
+                .toList();
+        if (ranking.isEmpty()) {
+            return List.of();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return listingsInOrder(ranking).stream()
+                .filter(listing -> listing.getEndTime().isAfter(now))
+                .toList();
     }
 
+    /**
+     * Listing pages and searches are served from the {@link SearchCache}
+     * while nothing on them changed.
+     */
     public Page<AuctionItemDtoWithoutImages> getAllAuctions(int page, int size) {
         validatePaginationParameters(page, size);
 
         PageRequest pageRequest = createPageRequest(page, size);
-        return auctionItemRepository.findAll(pageRequest).map(this::convertToDtoWithoutImages);
-    }
-    private AuctionItemDtoWithoutImages convertToDtoWithoutImages(AuctionItem auctionItem) {
-        Bid highestBid = auctionItem.getBids() != null && !auctionItem.getBids().isEmpty() ?
-                auctionItem.getBids().stream()
-                        .max((b1, b2) -> b1.getAmount().compareTo(b2.getAmount()))
-                        .orElse(null) : null;
-        return new AuctionItemDtoWithoutImages(
-                auctionItem.getId(),
-                auctionItem.getTitle(),
-                auctionItem.getDescription(),
-                auctionItem.getStartingPrice(),
-                auctionItem.getCurrentHighestBid(),
-                auctionItem.getStartTime(),
-                auctionItem.getEndTime(),
-                auctionItem.getSeller().getId(),
-                auctionItem.getSeller().getUsername(),
-                highestBid != null ? highestBid.getId() : null,
-                highestBid != null ? highestBid.getBidder().getFullName() : null,
-                auctionItem.getCategory(),
-                auctionItem.getBrand(),
-                auctionItem.getViews()
-        );
+        return searchCache.get(SearchCache.key("all", null, null, null, null, null, page, null, size),
+                () -> auctionItemRepository.findListings(pageRequest), listings -> auctionIds(listings.getContent()));
     }
 
+    /**
+     * Cursor variant of {@link #getAllAuctions(int, int)}: no offset and no
+     * count query, so every page costs the same.
+     */
+    public CursorPage<AuctionItemDtoWithoutImages> getAllAuctions(String after, int size) {
+        validatePaginationParameters(0, size);
+
+        return searchCache.get(SearchCache.key("all", null, null, null, null, null, null, after, size),
+                () -> listingPage(after, size, auctionItemRepository::findListingsAfter), listings -> auctionIds(listings.getContent()));
+    }
+
+    /**
+     * Filters auctions by category, brand and price. With {@code text} it is
+     * a full-text search over title, brand, category and description, best
+     * matches first, with stemming and web search syntax ("quoted phrases",
+     * -excluded, or).
+     */
+    public Page<AuctionItemDtoWithoutImages> getAuctionsByFilters(
+            String text, String category, String brand, Double minPrice, Double maxPrice, int page, int size) {
+        validatePaginationParameters(page, size);
 
-    public Page<AuctionItemDto> getAuctionsByFilters(
-            String title, String category, String brand, Double minPrice, Double maxPrice, int page, int size) {
+        String categoryFilter = blankToNull(category);
+        String brandFilter = blankToNull(brand);
 
-        // Create a PageRequest for pagination
         PageRequest pageRequest = PageRequest.of(page, size);
+        return searchCache.get(SearchCache.key("filtered", text, categoryFilter, brandFilter, minPrice, maxPrice,
+                page, null, size), () -> {
+            if (!StringUtils.hasText(text)) {
+                return auctionItemRepository.findListingsByCriteria(
+                        categoryFilter, brandFilter, minPrice, maxPrice, pageRequest);
+            }
+            Page<Long> ids = auctionItemRepository.searchIds(
+                    text, categoryFilter, brandFilter, minPrice, maxPrice, pageRequest);
+            return new PageImpl<>(listingsInOrder(ids.getContent()), pageRequest, ids.getTotalElements());
+        }, listings -> auctionIds(listings.getContent()));
+    }
+
+    /**
+     * Cursor variant of the filters and search above, in end time order.
+     */
+    public CursorPage<AuctionItemDtoWithoutImages> getAuctionsByFilters(
+            String text, String category, String brand, Double minPrice, Double maxPrice, String after, int size) {
+        validatePaginationParameters(0, size);
+        String categoryFilter = blankToNull(category);
+        String brandFilter = blankToNull(brand);
+
+        return searchCache.get(SearchCache.key("filtered", text, categoryFilter, brandFilter, minPrice, maxPrice,
+                null, after, size), () -> {
+            if (!StringUtils.hasText(text)) {
+                return listingPage(after, size, (endTime, id, limit) -> auctionItemRepository.findListingsByCriteriaAfter(
+                        categoryFilter, brandFilter, minPrice, maxPrice, endTime, id, limit));
+            }
+            return listingPage(after, size, (endTime, id, limit) -> listingsInOrder(auctionItemRepository.searchIdsAfter(
+                    text, categoryFilter, brandFilter, minPrice, maxPrice, endTime, id, limit)));
+        }, listings -> auctionIds(listings.getContent()));
+    }
 
-        // Query the repository using the search parameters
-        return auctionItemRepository.findAllByCriteria(title, category, brand, minPrice, maxPrice, pageRequest)
-                .map(this::convertToDto);
+    /**
+     * Facet counts for the same search as {@link #getAuctionsByFilters},
+     * from the {@link FacetIndex}. The database is only asked which auctions
+     * match the text, if there is one, once per normalized text while the
+     * {@link SearchCache} keeps the answer. Bids do not change what matches,
+     * so the match set is not tied to its auctions; a created, changed or
+     * closed auction drops it.
+     */
+    @Transactional(readOnly = true)
+    public SearchFacets getSearchFacets(String text, String category, String brand, Double minPrice, Double maxPrice) {
+        List<Long> matches = !StringUtils.hasText(text) ? null
+                : searchCache.get(SearchCache.key("matches", text, null, null, null, null, null, null, 0),
+                        () -> auctionItemRepository.searchAllIds(text), ids -> List.of());
+        return facetIndex.facets(matches, blankToNull(category), blankToNull(brand), minPrice, maxPrice);
+    }
+
+    /**
+     * Titles, brands and categories of open auctions starting with the
+     * typed text, most popular first, from the {@link SuggestionIndex}.
+     */
+    @Transactional(readOnly = true)
+    public List<AuctionSuggestion> suggest(String prefix, int size) {
+        validatePaginationParameters(0, size);
+
+        return suggestionIndex.suggest(prefix, Math.min(size, SuggestionIndex.TOP));
+    }
+
+    // An empty filter from a cleared form field matches everything
+    private static String blankToNull(String filter) {
+        return StringUtils.hasText(filter) ? filter : null;
+    }
+
+    private static List<Long> auctionIds(List<AuctionItemDtoWithoutImages> listings) {
+        return listings.stream().map(AuctionItemDtoWithoutImages::getId).toList();
+    }
+
+    private List<AuctionItemDtoWithoutImages> listingsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, AuctionItemDtoWithoutImages> listings = new HashMap<>();
+        auctionItemRepository.findListingsByIds(ids).forEach(listing -> listings.put(listing.getId(), listing));
+        return ids.stream()
+                .map(listings::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
     public AuctionItemDto updateAuction(Long id, UpdateAuctionRequest request) {
@@ -175,9 +339,11 @@ public class AuctionService {
         AuctionItem auction = findAuctionById(id);
         validateAuctionOwnership(auction);
 
-        if (!auction.getBids().isEmpty()) {
+        // The engine may hold bids that are not in the row yet.
+        if (auction.getHighestBidId() != null || !bidEngine.fenceUnbid(id)) {
             throw new ValidationException("Cannot update auction after bids have been placed");
         }
+        refreshAfterCompletion(auction);
 
         updateAuctionFields(auction, request);
         return convertToDto(auctionItemRepository.save(auction));
@@ -187,40 +353,127 @@ public class AuctionService {
         AuctionItem auction = findAuctionById(id);
         validateAuctionOwnership(auction);
 
-        if (!auction.getBids().isEmpty()) {
+        if (auction.getHighestBidId() != null || !bidEngine.fenceUnbid(id)) {
             throw new ValidationException("Cannot delete auction after bids have been placed");
         }
 
+        refreshAfterCompletion(auction);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bidEngine.forget(id);
+            }
+        });
+        trendingTracker.remove(id);
         auctionItemRepository.delete(auction);
     }
 
-    public Page<AuctionItemDto> getActiveAuctions(int page, int size) {
+    public Page<AuctionItemDtoWithoutImages> getActiveAuctions(int page, int size) {
         validatePaginationParameters(page, size);
 
-        return auctionItemRepository.findByEndTimeAfter(
+        return auctionItemRepository.findActiveListings(
                 LocalDateTime.now(),
                 PageRequest.of(page, size)
-        ).map(this::convertToDto);
+        );
     }
 
-    public Page<AuctionItemDto> getUserAuctions(Long userId, int page, int size) {
+    public CursorPage<AuctionItemDtoWithoutImages> getActiveAuctions(String after, int size) {
+        validatePaginationParameters(0, size);
+
+        LocalDateTime now = LocalDateTime.now();
+        return listingPage(after, size, (endTime, id, limit) ->
+                auctionItemRepository.findActiveListingsAfter(now, endTime, id, limit));
+    }
+
+    /**
+     * Open auctions soonest ending first, read from the {@link EndingSoonIndex}.
+     */
+    public Page<AuctionItemDtoWithoutImages> getAuctionsEndingSoon(int page, int size) {
         validatePaginationParameters(page, size);
 
-        return auctionItemRepository.findBySellerId(
+        return endingSoonIndex.page(page, size);
+    }
+
+    public CursorPage<AuctionItemDtoWithoutImages> getAuctionsEndingSoon(String after, int size) {
+        validatePaginationParameters(0, size);
+
+        return listingPage(after, size, (endTime, id, limit) -> endingSoonIndex.after(endTime, id, limit.max()));
+    }
+
+    public List<AuctionItemDtoWithoutImages> getAuctionsEndingBetween(LocalDateTime from, LocalDateTime to, int size) {
+        validatePaginationParameters(0, size);
+        if (from != null && to.isBefore(from)) {
+            throw new ValidationException("End of the window must not be before its start");
+        }
+
+        return endingSoonIndex.endingBetween(from != null ? from : LocalDateTime.now(), to, size);
+    }
+
+    public Page<AuctionItemDtoWithoutImages> getUserAuctions(Long userId, int page, int size) {
+        validatePaginationParameters(page, size);
+
+        return auctionItemRepository.findListingsBySellerId(
                 userId,
                 PageRequest.of(page, size)
-        ).map(this::convertToDto);
+        );
+    }
+
+    public CursorPage<AuctionItemDtoWithoutImages> getUserAuctions(Long userId, String after, int size) {
+        validatePaginationParameters(0, size);
+
+        return listingPage(after, size, (endTime, id, limit) ->
+                auctionItemRepository.findListingsBySellerIdAfter(userId, endTime, id, limit));
     }
 
+    /**
+     * Reads the listing page after the (end time, id) position in
+     * {@code after}, soonest ending first.
+     */
+    private CursorPage<AuctionItemDtoWithoutImages> listingPage(String after, int size, ListingSeek seek) {
+        Map<String, Object> keys = KeysetCursor.keys(after);
+        LocalDateTime endTime = FIRST_END_TIME;
+        Long id = 0L;
+        if (!keys.isEmpty()) {
+            if (!(keys.get("endTime") instanceof LocalDateTime afterEndTime) || !(keys.get("id") instanceof Long afterId)) {
+                throw new ValidationException("Invalid cursor");
+            }
+            endTime = afterEndTime;
+            id = afterId;
+        }
+
+        return KeysetCursor.page(seek.find(endTime, id, Limit.of(size + 1)), size, listing -> {
+            Map<String, Object> next = new LinkedHashMap<>();
+            next.put("endTime", listing.getEndTime());
+            next.put("id", listing.getId());
+            return next;
+        });
+    }
+
+    private interface ListingSeek {
+        List<AuctionItemDtoWithoutImages> find(LocalDateTime endTime, Long id, Limit limit);
+    }
+
+    /**
+     * Closes the auction now, through the settlement: the bid engine stops
+     * taking bids on it first, and the winner and the seller are notified
+     * once, from the written bids. The entity is left untouched: saving it
+     * would write back its loaded price and highest bid over what the
+     * write-behind has stored since.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AuctionItemDto closeAuction(Long id) {
         AuctionItem auction = findAuctionById(id);
         validateAuctionOwnership(auction);
 
-        auction.setEndTime(LocalDateTime.now());
-        AuctionItem savedAuction = auctionItemRepository.save(auction);
-        notificationService.notifyAuctionClosed(savedAuction);
+        LocalDateTime now = LocalDateTime.now();
+        if (!auctionSettlement.closeNow(id, now)) {
+            throw new ValidationException("Auction is already closed, or could not be closed right now");
+        }
+        refreshAfterCompletion(auction);
 
-        return convertToDto(savedAuction);
+        AuctionItemDto closed = convertToDto(auction);
+        closed.setEndTime(now);
+        return closed;
     }
 
     private AuctionItem findAuctionById(Long id) {
@@ -228,18 +481,15 @@ public class AuctionService {
                 .orElseThrow(() -> new AuctionNotFoundException("Auction not found with id: " + id));
     }
 
-    @Scheduled(fixedRate = 60000) // Runs every minute
+    /**
+     * Auctions are closed by the {@link AuctionCloseScheduler} as they end;
+     * this sweep only catches chunks that failed, and auctions changed
+     * outside the application.
+     */
+    @Scheduled(fixedRateString = "${auction.close.sweep-ms:300000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void closeExpiredAuctions() {
-        LocalDateTime now = LocalDateTime.now();
-        List<AuctionItem> expiredAuctions = auctionItemRepository.findAllByEndTimeBeforeAndIsSoldFalse(now);
-
-        for (AuctionItem auction : expiredAuctions) {
-            auction.setEndTime(now);
-            auction.setSold(true); // Mark as sold or process further
-            auctionItemRepository.save(auction);
-
-            notificationService.notifyAuctionClosed(auction);
-        }
+        auctionSettlement.settleExpired();
     }
     public Map<Integer, Long> getAuctionItemCountByMonth() {
         List<Object[]> results = auctionItemRepository.findAuctionItemsByMonth();
@@ -252,6 +502,39 @@ public class AuctionService {
         return monthlyCounts;
     }
 
+    /**
+     * The bid engine, the ending-soon, facet and suggestion indexes, the
+     * search and detail caches and the close scheduler keep auction state in
+     * memory; once this transaction is over, have them reread what was
+     * actually committed.
+     */
+    private void refreshAfterCompletion(AuctionItem auction) {
+        Long auctionId = auction.getId();
+        String category = auction.getCategory();
+        String brand = auction.getBrand();
+        Double startingPrice = auction.getStartingPrice();
+        Runnable refresh = () -> {
+            bidEngine.refresh(auctionId);
+            endingSoonIndex.refresh(auctionId);
+            facetIndex.refresh(auctionId);
+            suggestionIndex.refresh(auctionId);
+            searchCache.auctionChanged(auctionId, category, brand, startingPrice);
+            auctionDetailCache.invalidate(auctionId);
+            closeScheduler.refresh(auctionId);
+            startScheduler.refresh(auctionId);
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                refresh.run();
+            }
+        });
+    }
+
     private void validateAuctionOwnership(AuctionItem auction) {
         User currentUser = userRepository.findById(userService.getCurrentUser().getId())
                 .orElseThrow(() -> new UnauthorizedException("User not found"));
@@ -326,17 +609,9 @@ public class AuctionService {
             return null;
         }
 
-        Bid highestBid = auction.getBids() != null && !auction.getBids().isEmpty() ?
-                auction.getBids().stream()
-                        .max((b1, b2) -> b1.getAmount().compareTo(b2.getAmount()))
-                        .orElse(null) : null;
-
-        String frontImageBase64 = auction.getFrontImage() != null ?
-                Base64.getEncoder().encodeToString(auction.getFrontImage()) : null;
-
-        List<String> additionalImagesBase64 = auction.getAdditionalImages() != null ?
+        List<String> additionalImageUrls = auction.getAdditionalImages() != null ?
                 auction.getAdditionalImages().stream()
-                        .map(img -> Base64.getEncoder().encodeToString(img.getImage()))
+                        .map(img -> ImageStore.url(img.getImageHash()))
                         .collect(Collectors.toList()) :
                 new ArrayList<>();
 
@@ -349,12 +624,12 @@ public class AuctionService {
                 auction.getStartTime(),
                 auction.getEndTime(),
                 auction.getSeller().getId(),
-                auction.getSeller().getImage(),
+                ImageStore.url(auction.getSeller().getImageHash()),
                 auction.getSeller().getFullName(),
-                highestBid != null ? highestBid.getId() : null,
-                highestBid != null ? highestBid.getBidder().getFullName() : null,
-                frontImageBase64,
-                additionalImagesBase64,
+                auction.getHighestBidId(),
+                auction.getHighestBidderName(),
+                ImageStore.url(auction.getFrontImageHash()),
+                additionalImageUrls,
                 auction.getCategory(),
                 auction.getBrand(),
                 auction.getViews()
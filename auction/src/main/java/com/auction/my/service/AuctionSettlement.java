@@ -0,0 +1,232 @@
+package com.auction.my.service;
+
+import com.auction.my.repository.AuctionItemRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Closes ended auctions a chunk at a time, for the
+ * {@link AuctionCloseScheduler} and the sweep for expired auctions, and
+ * auctions their seller closes early.
+ * <p>
+ * The {@link BidEngine} is closed first, outside the transaction, so that
+ * no bid is accepted on an auction while it is being claimed, and the claim
+ * waits until the {@link BidWriteBehind} has written every bid accepted
+ * before that: the winner and the price are read from the row. Auctions the
+ * chunk did not close, or all of them if it failed, are reopened there.
+ * <p>
+ * A chunk is one transaction: a single UPDATE claims its ended, unsold
+ * auctions and marks them sold, returning what the notifications need (the
+ * winner is the auction's highest bidder), and a single aggregate query
+ * finds everyone who bid on them. An {@link AuctionClosedEvent} per auction
+ * is handled after the commit, so notifying never holds up closing. A chunk
+ * that fails is retried by the sweep without affecting the others.
+ * <p>
+ * Rows are claimed with {@code FOR UPDATE SKIP LOCKED}, so closers skip an
+ * auction another one is closing rather than wait for it, and one already
+ * closed is no longer unsold: every auction is closed, and notified, exactly
+ * once. With {@code auction.close.multi-node=true} several nodes share the
+ * database and split the closing work this way. That is only safe with
+ * {@code auction.bid-engine.enabled=false}, where bids are accepted in the
+ * database: the {@link BidEngine} holds prices in one node's memory and
+ * closing waits for that node's write-behind only. Startup fails if both
+ * are on.
+ */
+@Service
+public class AuctionSettlement {
+
+    private static final Logger log = LoggerFactory.getLogger(AuctionSettlement.class);
+    private static final String CLOSE =
+            "UPDATE auction_item SET is_sold = true WHERE id IN (" +
+                    "SELECT id FROM auction_item WHERE end_time <= ? AND is_sold IS NOT TRUE AND id = ANY(?) " +
+                    "FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, title, seller_id, highest_bidder_id, current_highest_bid";
+    private static final long ENGINE_CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AuctionCloseScheduler closeScheduler;
+    private final BidEngine bidEngine;
+    private final BidWriteBehind writeBehind;
+    private final AuctionItemRepository auctionItemRepository;
+    private final EndingSoonIndex endingSoonIndex;
+    private final SuggestionIndex suggestionIndex;
+    private final TrendingTracker trendingTracker;
+    private final int chunkSize;
+    private final boolean multiNode;
+    private final boolean bidEngineEnabled;
+
+    public AuctionSettlement(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             ApplicationEventPublisher eventPublisher,
+                             AuctionCloseScheduler closeScheduler,
+                             BidEngine bidEngine,
+                             BidWriteBehind writeBehind,
+                             AuctionItemRepository auctionItemRepository,
+                             EndingSoonIndex endingSoonIndex,
+                             SuggestionIndex suggestionIndex,
+                             TrendingTracker trendingTracker,
+                             @Value("${auction.close.chunk-size:500}") int chunkSize,
+                             @Value("${auction.close.multi-node:false}") boolean multiNode,
+                             @Value("${auction.bid-engine.enabled:true}") boolean bidEngineEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.closeScheduler = closeScheduler;
+        this.bidEngine = bidEngine;
+        this.writeBehind = writeBehind;
+        this.auctionItemRepository = auctionItemRepository;
+        this.endingSoonIndex = endingSoonIndex;
+        this.suggestionIndex = suggestionIndex;
+        this.trendingTracker = trendingTracker;
+        this.chunkSize = chunkSize;
+        this.multiNode = multiNode;
+        this.bidEngineEnabled = bidEngineEnabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (multiNode && bidEngineEnabled) {
+            throw new IllegalStateException("auction.close.multi-node=true needs auction.bid-engine.enabled=false: " +
+                    "the bid engine holds the prices of its auctions in one node's memory");
+        }
+        closeScheduler.start(this::settle);
+    }
+
+    /**
+     * Closes those of the auctions that have ended and are not sold yet;
+     * auctions extended in the meantime stay open.
+     */
+    public void settle(List<Long> auctionIds) {
+        close(auctionIds, null);
+    }
+
+    /**
+     * Closes the auction at {@code now}, for its seller. Bids stop in the
+     * engine before the end time moves, so none is accepted against the old
+     * one; the auction is then claimed like an ended one. Returns false if
+     * it is already sold or ended, or could not be closed.
+     */
+    public boolean closeNow(Long auctionId, LocalDateTime now) {
+        return close(List.of(auctionId), now) == 1;
+    }
+
+    /**
+     * Closes every ended auction that no one else is closing, a chunk at a
+     * time, oldest first.
+     */
+    public void settleExpired() {
+        while (true) {
+            List<Long> ended = jdbcTemplate.queryForList(
+                    "SELECT id FROM auction_item WHERE end_time <= ? AND is_sold IS NOT TRUE " +
+                            "ORDER BY end_time, id LIMIT ?",
+                    Long.class, Timestamp.valueOf(LocalDateTime.now()), chunkSize);
+            // Nothing closed: another closer or node holds the chunk, or it failed; the next sweep tries again.
+            if (ended.isEmpty() || close(ended, null) == 0 || ended.size() < chunkSize) {
+                return;
+            }
+        }
+    }
+
+    private int close(List<Long> auctionIds, LocalDateTime endNow) {
+        try {
+            bidEngine.close(auctionIds)
+                    .thenCompose(writeBehind::written)
+                    .get(ENGINE_CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            bidEngine.reopen(auctionIds);
+            log.error("Could not close auctions {} in the bid engine and write their bids, " +
+                    "leaving them to the sweep", auctionIds, e);
+            return 0;
+        } catch (InterruptedException e) {
+            bidEngine.reopen(auctionIds);
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+
+        List<AuctionClosedEvent> closed;
+        try {
+            closed = transactionTemplate.execute(status -> {
+                if (endNow != null) {
+                    auctionIds.forEach(auctionId -> auctionItemRepository.endNow(auctionId, endNow));
+                }
+                List<AuctionClosedEvent> events = markClosed(auctionIds);
+                events.forEach(eventPublisher::publishEvent);
+                return events;
+            });
+        } catch (RuntimeException e) {
+            bidEngine.reopen(auctionIds);
+            throw e;
+        }
+
+        List<Long> closedIds = closed.stream().map(AuctionClosedEvent::auctionId).toList();
+        // Extended by a late bid, or being closed by another closer or node
+        Set<Long> notClosed = new HashSet<>(auctionIds);
+        closedIds.forEach(notClosed::remove);
+        bidEngine.reopen(notClosed);
+        closedIds.forEach(bidEngine::forget);
+        closedIds.forEach(endingSoonIndex::remove);
+        closedIds.forEach(trendingTracker::remove);
+        suggestionIndex.removeAll(closedIds);
+        log.debug("Closed {} auctions", closedIds.size());
+        return closedIds.size();
+    }
+
+    private List<AuctionClosedEvent> markClosed(List<Long> auctionIds) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Long[] ids = auctionIds.toArray(new Long[0]);
+        List<Object[]> rows = jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(CLOSE);
+                    statement.setTimestamp(1, now);
+                    statement.setArray(2, connection.createArrayOf("bigint", ids));
+                    return statement;
+                },
+                (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getLong(3),
+                        rs.getObject(4, Long.class), rs.getObject(5, Double.class)});
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+
+        Long[] closedIds = rows.stream().map(row -> (Long) row[0]).toArray(Long[]::new);
+        Map<Long, List<Long>> bidders = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                            "SELECT auction_item_id, array_agg(DISTINCT bidder_id) FROM bid " +
+                                    "WHERE auction_item_id = ANY(?) GROUP BY auction_item_id");
+                    statement.setArray(1, connection.createArrayOf("bigint", closedIds));
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> {
+                    Array bidderIds = rs.getArray(2);
+                    bidders.put(rs.getLong(1), Arrays.asList((Long[]) bidderIds.getArray()));
+                });
+
+        return rows.stream()
+                .map(row -> new AuctionClosedEvent((Long) row[0], (String) row[1], (Long) row[2], (Long) row[3],
+                        (Double) row[4], bidders.getOrDefault((Long) row[0], List.of())))
+                .toList();
+    }
+}
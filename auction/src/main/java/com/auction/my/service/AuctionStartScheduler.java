@@ -0,0 +1,77 @@
+package com.auction.my.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Starts auctions listed with a future start time when that time comes, on
+ * the same kind of {@link DeadlineTimer} that closes them.
+ * <p>
+ * Bids and the active listings check the start time themselves; the start
+ * is when the in-memory state of the auction is loaded, so its first
+ * bidders find it warm, and when it is announced.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class AuctionStartScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(AuctionStartScheduler.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DeadlineTimer deadlines;
+
+    public AuctionStartScheduler(JdbcTemplate jdbcTemplate,
+                                 @Value("${auction.start.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.deadlines = new DeadlineTimer("auction-start-timer", chunkSize);
+    }
+
+    @PostConstruct
+    public void load() {
+        jdbcTemplate.query("SELECT id, start_time FROM auction_item WHERE start_time > ? AND is_sold IS NOT TRUE",
+                (RowCallbackHandler) rs -> deadlines.schedule(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime()),
+                Timestamp.valueOf(LocalDateTime.now()));
+        log.info("Start scheduler loaded with {} upcoming auctions", deadlines.size());
+    }
+
+    /**
+     * Starts auctions as their start time comes, a chunk at a time, with
+     * {@code starter} on the timer thread.
+     */
+    public void start(Consumer<List<Long>> starter) {
+        deadlines.start(starter);
+    }
+
+    /**
+     * Rereads an auction's start time after it was created, changed or
+     * deleted.
+     */
+    public void refresh(Long auctionId) {
+        List<LocalDateTime> startTimes = jdbcTemplate.query(
+                "SELECT start_time FROM auction_item WHERE id = ? AND start_time > ? AND is_sold IS NOT TRUE",
+                (rs, rowNum) -> rs.getTimestamp(1).toLocalDateTime(),
+                auctionId, Timestamp.valueOf(LocalDateTime.now()));
+        if (startTimes.isEmpty()) {
+            deadlines.cancel(auctionId);
+        } else {
+            deadlines.reschedule(auctionId, startTimes.get(0));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        deadlines.stop();
+    }
+}
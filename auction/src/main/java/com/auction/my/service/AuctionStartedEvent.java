@@ -0,0 +1,11 @@
+package com.auction.my.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by the {@link AuctionActivation} for every auction that started
+ * taking bids at its scheduled start time.
+ */
+public record AuctionStartedEvent(Long auctionId, String title, Long sellerId, LocalDateTime startTime,
+                                  LocalDateTime endTime) {
+}
@@ -0,0 +1,593 @@
+package com.auction.my.service;
+
+import com.auction.my.dto.AuctionBidSnapshot;
+import com.auction.my.dto.StandingProxyBid;
+import com.auction.my.exception.AuctionNotFoundException;
+import com.auction.my.exception.BidEngineBusyException;
+import com.auction.my.exception.UnauthorizedException;
+import com.auction.my.exception.ValidationException;
+import com.auction.my.repository.AuctionItemRepository;
+import com.auction.my.repository.ProxyBidRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * In-memory bid engine. Auctions are partitioned by id onto single-writer
+ * shards: every bid for a given auction is accepted or rejected by the one
+ * thread that owns its shard, against live state held in memory, so there is
+ * no row lock and no lost update. A bid is acknowledged once it is durable
+ * in the {@link BidJournal}; {@link BidWriteBehind} writes it to the database
+ * afterwards, in batches. Nothing fences the auctions against another
+ * process, so with the engine on the application runs as a single instance
+ * per database; several nodes take bids with {@code auction.bid-engine.enabled=false}.
+ * <p>
+ * Each auction also keeps its standing maximum bids ordered by amount, so
+ * proxy bidding is resolved on the shard in O(log n) and only the resulting
+ * bids are written. A bid that lands in the auction's {@link SoftClose}
+ * window extends it there too, journaled right after the bid, and reaches the
+ * auction row through the write-behind like the bid; the shard never waits
+ * on the database for it. A closer cannot claim the auction on its old end
+ * time: {@link #close(Collection)} journals behind the extension, and the
+ * settlement waits for both to be written before it claims.
+ * <p>
+ * Callers wait for the shard's verdict on a bid for as long as it takes: it
+ * may be accepted however late the verdict comes. The engine instead admits
+ * a bounded number of bids at a time, counted until they are acknowledged,
+ * and turns the rest away up front, before they are queued; the bound is
+ * kept below the servlet pool so bidders cannot take all of it. Waiting for
+ * an accepted bid to become durable is timed, so a stalled journal, e.g. one
+ * held up by a full write-behind queue, turns bidders away too.
+ */
+@Service
+public class BidEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(BidEngine.class);
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final AuctionItemRepository auctionItemRepository;
+    private final ProxyBidRepository proxyBidRepository;
+    private final BidJournal journal;
+    private final BidWriteBehind writeBehind;
+    private final SoftClose softClose;
+    private final long durableTimeoutMillis;
+    private final double increment;
+    private final Shard[] shards;
+    // Bids admitted and not yet acknowledged or turned down
+    private final Semaphore inFlight;
+
+    public BidEngine(AuctionItemRepository auctionItemRepository,
+                     ProxyBidRepository proxyBidRepository,
+                     BidJournal journal,
+                     BidWriteBehind writeBehind,
+                     SoftClose softClose,
+                     @Value("${auction.bid-engine.shards:0}") int shardCount,
+                     @Value("${auction.bid-engine.max-in-flight:100}") int maxInFlight,
+                     @Value("${auction.bid-engine.durable-timeout-ms:5000}") long durableTimeoutMillis,
+                     @Value("${auction.bidding.increment:1.0}") double increment) {
+        this.auctionItemRepository = auctionItemRepository;
+        this.proxyBidRepository = proxyBidRepository;
+        this.journal = journal;
+        this.writeBehind = writeBehind;
+        this.softClose = softClose;
+        this.durableTimeoutMillis = durableTimeoutMillis;
+        this.increment = increment;
+        this.inFlight = new Semaphore(maxInFlight);
+
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * Loads the auctions that were live when the application stopped onto
+     * their shards, once the journal has been replayed into the database, so
+     * the first bids after a restart do not pay for the load.
+     */
+    @PostConstruct
+    public void warmUp() {
+        writeBehind.getRecoveredAuctionIds().forEach(this::warm);
+    }
+
+    /**
+     * Loads the auction onto its shard ahead of its first bid, e.g. when it
+     * starts. Does not wait for the load.
+     */
+    public void warm(Long auctionId) {
+        Shard shard = shardFor(auctionId);
+        shard.submit(() -> cachedState(shard, auctionId))
+                .whenComplete((state, e) -> {
+                    if (e != null) {
+                        log.warn("Could not load auction {} ahead of its bids", auctionId, e);
+                    }
+                });
+    }
+
+    /**
+     * Accepts or rejects a bid on the owning shard and waits for the verdict.
+     * Rejections surface as the same exceptions the REST layer already maps.
+     * The first bid of the returned resolution is the caller's; any standing
+     * maximum bids that answered it follow. Returns once the resolution is
+     * durable in the journal. Throws {@link BidEngineBusyException}, without
+     * queueing the bid, when too many bids are in flight already, and also
+     * when the accepted bid is not durable in time.
+     */
+    public Resolution placeBid(Long auctionId, Long bidderId, String bidderName, double amount) {
+        Shard shard = shardFor(auctionId);
+        return admit(() -> awaitDurable(await(shard.submit(
+                () -> acceptBid(shard, auctionId, bidderId, bidderName, amount)))));
+    }
+
+    /**
+     * Registers (or raises) a standing maximum bid and lets the engine bid on
+     * the user's behalf, in increments, up to that amount.
+     */
+    public Resolution placeMaxBid(Long auctionId, Long bidderId, String bidderName, double maxAmount) {
+        Shard shard = shardFor(auctionId);
+        return admit(() -> awaitDurable(await(shard.submit(
+                () -> acceptMaxBid(shard, auctionId, bidderId, bidderName, maxAmount)))));
+    }
+
+    /**
+     * Stops bids on the auctions, after the ones already accepted, and
+     * journals a close record for each behind its last bid. Does not wait:
+     * the returned future completes once the records are durable, with the
+     * highest of their sequences. The close itself is committed by the
+     * caller, which then calls {@link #forget(Long)} for the auctions it
+     * closed and {@link #reopen(Collection)} for the others.
+     */
+    public CompletableFuture<Long> close(Collection<Long> auctionIds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<CompletableFuture<Long>> closed = new ArrayList<>(auctionIds.size());
+        for (Long auctionId : auctionIds) {
+            Shard shard = shardFor(auctionId);
+            closed.add(shard.submit(() -> {
+                shard.closing.add(auctionId);
+                BidJournalRecord record = BidJournalRecord.of(BidJournalRecord.Type.CLOSE, auctionId, 0, 0, now);
+                List<BidJournalRecord> records = List.of(record);
+                return journal.append(records, () -> writeBehind.enqueue(null, records))
+                        .thenApply(ignored -> record.getSequence());
+            }).thenCompose(durable -> durable));
+        }
+        return CompletableFuture.allOf(closed.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> closed.stream().mapToLong(CompletableFuture::join).max().orElse(0));
+    }
+
+    /**
+     * Takes bids again on auctions {@link #close(Collection) closed} here
+     * but not in the database, e.g. because a late bid extended them. Their
+     * row is reread on the next bid.
+     */
+    public void reopen(Collection<Long> auctionIds) {
+        for (Long auctionId : auctionIds) {
+            Shard shard = shardFor(auctionId);
+            shard.owner.execute(() -> {
+                shard.closing.remove(auctionId);
+                AuctionState state = shard.auctions.get(auctionId);
+                if (state != null) {
+                    state.stale = true;
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops bids on the auction while it is changed or deleted, unless the
+     * engine has accepted bids on it: those may not be in the database yet,
+     * so a check of the auction row alone would miss them. Returns whether
+     * the auction was fenced; {@link #refresh(Long)} lifts the fence.
+     */
+    public boolean fenceUnbid(Long auctionId) {
+        Shard shard = shardFor(auctionId);
+        return await(shard.submit(() -> {
+            AuctionState state = shard.auctions.get(auctionId);
+            if (state != null && state.highestBidderId != null) {
+                return false;
+            }
+            shard.fenced.add(auctionId);
+            return true;
+        }));
+    }
+
+    /**
+     * Rereads the auction row (title, seller, start and end time, sold flag)
+     * on the next bid, and lifts a fence taken by {@link #fenceUnbid(Long)}.
+     * Used when the auction is changed outside the engine. The price and the
+     * standing maximum bids stay in memory, since the database may not have
+     * caught up with them yet.
+     */
+    public void refresh(Long auctionId) {
+        Shard shard = shardFor(auctionId);
+        shard.owner.execute(() -> {
+            shard.fenced.remove(auctionId);
+            AuctionState state = shard.auctions.get(auctionId);
+            if (state != null) {
+                state.stale = true;
+            }
+        });
+    }
+
+    private Resolution acceptBid(Shard shard, Long auctionId, Long bidderId, String bidderName, double amount) {
+        AuctionState state = biddableState(shard, auctionId, bidderId);
+        if (amount <= state.highestAmount) {
+            throw new ValidationException("Bid amount must be higher than current highest bid");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Resolution resolution = new Resolution(auctionId, state, null);
+        record(state, resolution, bidderId, bidderName, amount, now);
+        resolveProxies(state, resolution, now);
+        return commit(shard, state, resolution);
+    }
+
+    private Resolution acceptMaxBid(Shard shard, Long auctionId, Long bidderId, String bidderName, double maxAmount) {
+        AuctionState state = biddableState(shard, auctionId, bidderId);
+        if (maxAmount <= state.highestAmount) {
+            throw new ValidationException("Maximum bid must be higher than current highest bid");
+        }
+        ProxyBidding.Proxy existing = state.proxiesByBidder.get(bidderId);
+        if (existing != null && maxAmount <= existing.maxAmount()) {
+            throw new ValidationException("Maximum bid can only be raised");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (existing != null) {
+            state.rankedProxies.remove(existing);
+        }
+        ProxyBidding.Proxy entry = new ProxyBidding.Proxy(bidderId, bidderName, maxAmount, now);
+        state.proxiesByBidder.put(bidderId, entry);
+        state.rankedProxies.add(entry);
+
+        Resolution resolution = new Resolution(auctionId, state, entry);
+        resolveProxies(state, resolution, now);
+        return commit(shard, state, resolution);
+    }
+
+    /**
+     * Drops what the engine holds for the auction once it is closed or
+     * deleted and everything it accepted is in the database; a later bid
+     * rereads the row and is turned away.
+     */
+    public void forget(Long auctionId) {
+        Shard shard = shardFor(auctionId);
+        shard.owner.execute(() -> {
+            shard.auctions.remove(auctionId);
+            shard.fenced.remove(auctionId);
+            shard.closing.remove(auctionId);
+        });
+    }
+
+    private AuctionState biddableState(Shard shard, Long auctionId, Long bidderId) {
+        if (shard.closing.contains(auctionId)) {
+            throw new ValidationException("Auction is already closed");
+        }
+        if (shard.fenced.contains(auctionId)) {
+            throw new ValidationException("Auction is being changed, try again");
+        }
+        AuctionState state = shard.auctions.get(auctionId);
+        if (state == null) {
+            state = cachedState(shard, auctionId);
+        } else if (state.stale) {
+            reloadSnapshot(shard, auctionId, state);
+        }
+
+        if (state.closed) {
+            throw new ValidationException("Auction is already closed");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (state.startTime != null && state.startTime.isAfter(now)) {
+            throw new ValidationException("Auction has not started yet");
+        }
+        if (!state.endTime.isAfter(now)) {
+            throw new ValidationException("Auction has ended");
+        }
+        if (state.sellerId.equals(bidderId)) {
+            throw new UnauthorizedException("Seller cannot bid on their own auction");
+        }
+        return state;
+    }
+
+    /**
+     * Lets the standing maximum bids answer, by {@link ProxyBidding}. Both
+     * lookups are O(log n) on the ranked set.
+     */
+    private void resolveProxies(AuctionState state, Resolution resolution, LocalDateTime now) {
+        if (state.rankedProxies.isEmpty()) {
+            return;
+        }
+        ProxyBidding.Proxy top = state.rankedProxies.first();
+        ProxyBidding.Proxy runnerUp = state.rankedProxies.higher(top);
+        for (ProxyBidding.Answer answer : ProxyBidding.answer(top, runnerUp, state.highestBidderId,
+                state.highestAmount, increment)) {
+            record(state, resolution, answer.bidderId(), answer.bidderName(), answer.amount(), now);
+        }
+    }
+
+    private void record(AuctionState state, Resolution resolution, Long bidderId, String bidderName,
+                        double amount, LocalDateTime now) {
+        if (state.highestBidderId != null && !state.highestBidderId.equals(bidderId)) {
+            resolution.outbidBidderIds.add(state.highestBidderId);
+        }
+        resolution.bids.add(new AcceptedBid(resolution.auctionId, state.title, state.sellerId,
+                bidderId, bidderName, amount, now, state.highestBidderId));
+        state.highestAmount = amount;
+        state.highestBidderId = bidderId;
+    }
+
+    // Whatever fails here, the bids just resolved are already in the state;
+    // it goes, and the auction is reloaded from the database on the next bid.
+    private Resolution commit(Shard shard, AuctionState state, Resolution resolution) {
+        try {
+            resolution.highestAmount = state.highestAmount;
+            resolution.highestBidderId = state.highestBidderId;
+            resolution.outbidBidderIds.remove(state.highestBidderId);
+            LocalDateTime extendedEndTime = resolution.bids.isEmpty() ? null
+                    : softClose.extend(state.endTime, resolution.bids.get(0).getBidTime());
+            if (extendedEndTime != null) {
+                state.endTime = extendedEndTime;
+                state.extendedEndTime = extendedEndTime;
+                resolution.extended = true;
+                softClose.reschedule(resolution.auctionId, extendedEndTime);
+            }
+            resolution.endTime = state.endTime;
+
+            List<BidJournalRecord> records = new ArrayList<>(resolution.bids.size() + 2);
+            if (resolution.proxy != null) {
+                records.add(BidJournalRecord.of(BidJournalRecord.Type.MAX_BID, resolution.auctionId,
+                        resolution.proxy.bidderId(), resolution.proxy.maxAmount(), resolution.proxy.createdAt()));
+            }
+            for (AcceptedBid accepted : resolution.bids) {
+                records.add(BidJournalRecord.of(BidJournalRecord.Type.BID, resolution.auctionId,
+                        accepted.getBidderId(), accepted.getAmount(), accepted.getBidTime()));
+            }
+            if (resolution.extended) {
+                records.add(BidJournalRecord.of(BidJournalRecord.Type.EXTEND, resolution.auctionId, 0, 0,
+                        resolution.endTime));
+            }
+            resolution.durable = journal.append(records, () -> writeBehind.enqueue(resolution, records))
+                    .whenComplete((ignored, e) -> {
+                        if (e != null) {
+                            // The in-memory state is now ahead of what was journaled; reload it on the next bid.
+                            log.error("Failed to journal {} bids on auction {}", resolution.bids.size(), resolution.auctionId, e);
+                            shard.owner.execute(() -> shard.auctions.remove(resolution.auctionId));
+                        }
+                    });
+            return resolution;
+        } catch (RuntimeException e) {
+            shard.auctions.remove(resolution.auctionId);
+            throw e;
+        }
+    }
+
+    // Auctions loaded already closed are not kept; nothing more happens to them.
+    private AuctionState cachedState(Shard shard, Long auctionId) {
+        AuctionState state = shard.auctions.get(auctionId);
+        if (state == null) {
+            state = loadState(auctionId);
+            if (!state.closed) {
+                shard.auctions.put(auctionId, state);
+            }
+        }
+        return state;
+    }
+
+    private AuctionState loadState(Long auctionId) {
+        AuctionBidSnapshot snapshot = auctionItemRepository.findBidSnapshotById(auctionId)
+                .orElseThrow(() -> new AuctionNotFoundException("Auction not found with id: " + auctionId));
+
+        AuctionState state = new AuctionState();
+        applySnapshot(snapshot, state);
+        state.highestAmount = snapshot.getCurrentHighestBid() != null ? snapshot.getCurrentHighestBid() : 0;
+        state.highestBidderId = snapshot.getHighestBidderId();
+        for (StandingProxyBid proxy : proxyBidRepository.findStandingByAuctionId(auctionId)) {
+            ProxyBidding.Proxy entry = new ProxyBidding.Proxy(proxy.getBidderId(), proxy.getBidderName(),
+                    proxy.getMaxAmount(), proxy.getCreatedAt());
+            state.proxiesByBidder.put(entry.bidderId(), entry);
+            state.rankedProxies.add(entry);
+        }
+        return state;
+    }
+
+    private void reloadSnapshot(Shard shard, Long auctionId, AuctionState state) {
+        AuctionBidSnapshot snapshot = auctionItemRepository.findBidSnapshotById(auctionId).orElse(null);
+        if (snapshot == null) {
+            shard.auctions.remove(auctionId);
+            throw new AuctionNotFoundException("Auction not found with id: " + auctionId);
+        }
+        applySnapshot(snapshot, state);
+        // A soft-close extension journaled here may not be in the row yet.
+        if (state.extendedEndTime != null && state.extendedEndTime.isAfter(state.endTime)) {
+            state.endTime = state.extendedEndTime;
+        }
+        if (snapshot.getCurrentHighestBid() != null && snapshot.getCurrentHighestBid() > state.highestAmount) {
+            state.highestAmount = snapshot.getCurrentHighestBid();
+        }
+        state.stale = false;
+    }
+
+    private void applySnapshot(AuctionBidSnapshot snapshot, AuctionState state) {
+        state.sellerId = snapshot.getSellerId();
+        state.title = snapshot.getTitle();
+        state.startTime = snapshot.getStartTime();
+        state.endTime = snapshot.getEndTime();
+        state.closed = state.closed || Boolean.TRUE.equals(snapshot.getIsSold());
+    }
+
+    private Shard shardFor(Long auctionId) {
+        return shards[Math.floorMod(Long.hashCode(auctionId), shards.length)];
+    }
+
+    // Uninterruptible and without a timeout: once a task is queued, its
+    // outcome is the only honest answer.
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Bid engine failure", e.getCause());
+        }
+    }
+
+    private Resolution admit(Supplier<Resolution> bid) {
+        if (!inFlight.tryAcquire()) {
+            throw new BidEngineBusyException("Too many bids right now, try again");
+        }
+        try {
+            return bid.get();
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    // The bid is accepted by now; only its journal write is late, and it may
+    // still be kept.
+    private Resolution awaitDurable(Resolution resolution) {
+        try {
+            resolution.durable.get(durableTimeoutMillis, TimeUnit.MILLISECONDS);
+            return resolution;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Bid engine failure", e.getCause());
+        } catch (TimeoutException e) {
+            throw new BidEngineBusyException("Bids are being stored slowly right now; "
+                    + "check the auction before bidding again");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the bid journal", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.owner.shutdown();
+        }
+        for (Shard shard : shards) {
+            shard.owner.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private static final class Shard {
+        private final ExecutorService owner;
+        // Only ever touched from the owner thread.
+        private final Map<Long, AuctionState> auctions = new HashMap<>();
+        // Auctions being changed or deleted
+        private final Set<Long> fenced = new HashSet<>();
+        // Auctions being closed
+        private final Set<Long> closing = new HashSet<>();
+
+        private Shard(int index) {
+            this.owner = Executors.newSingleThreadExecutor(r -> new Thread(r, "bid-shard-" + index));
+        }
+
+        private <T> CompletableFuture<T> submit(Callable<T> task) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            owner.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+            return future;
+        }
+    }
+
+    private static final class AuctionState {
+        private Long sellerId;
+        private String title;
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+        // The latest soft-close extension journaled for the auction
+        private LocalDateTime extendedEndTime;
+        private double highestAmount;
+        private Long highestBidderId;
+        private boolean closed;
+        // The auction row changed; reread it before the next bid.
+        private boolean stale;
+        // Standing maximum bids, one per bidder, best first.
+        private final Map<Long, ProxyBidding.Proxy> proxiesByBidder = new HashMap<>();
+        private final NavigableSet<ProxyBidding.Proxy> rankedProxies = new TreeSet<>(ProxyBidding.ORDER);
+    }
+
+    /**
+     * Everything one request changed on an auction: the bid rows to write,
+     * in order, and where the auction stands afterwards, including its end
+     * time if a late bid extended it.
+     */
+    @Getter
+    public static final class Resolution {
+        private final Long auctionId;
+        private final String auctionTitle;
+        private final Long sellerId;
+        @Getter(AccessLevel.NONE)
+        private final ProxyBidding.Proxy proxy;
+        private final List<AcceptedBid> bids = new ArrayList<>();
+        private final Set<Long> outbidBidderIds = new LinkedHashSet<>();
+        private double highestAmount;
+        private Long highestBidderId;
+        private LocalDateTime endTime;
+        // A late bid pushed the end time back
+        private boolean extended;
+        @Getter(AccessLevel.NONE)
+        private CompletableFuture<Void> durable;
+
+        private Resolution(Long auctionId, AuctionState state, ProxyBidding.Proxy proxy) {
+            this.auctionId = auctionId;
+            this.auctionTitle = state.title;
+            this.sellerId = state.sellerId;
+            this.proxy = proxy;
+        }
+    }
+
+    /**
+     * A bid the engine has accepted, as returned to the caller and written to
+     * the journal.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class AcceptedBid {
+        private final Long auctionId;
+        private final String auctionTitle;
+        private final Long sellerId;
+        private final Long bidderId;
+        private final String bidderName;
+        private final double amount;
+        private final LocalDateTime bidTime;
+        private final Long previousBidderId;
+    }
+}
@@ -0,0 +1,43 @@
+package com.auction.my.service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Local, durable log of accepted bids. A bid is acknowledged to the client
+ * once its records are on disk here; the database is written later, in
+ * batches, by {@link BidWriteBehind}.
+ */
+public interface BidJournal {
+
+    /**
+     * Reads back every intact record above {@code afterSequence}, in
+     * sequence order. Called once at startup, before {@link #start(long)}.
+     */
+    List<BidJournalRecord> recover(long afterSequence);
+
+    /**
+     * Starts accepting appends; sequences continue after {@code lastSequence}
+     * or after the last record recovered, whichever is higher.
+     */
+    void start(long lastSequence);
+
+    /**
+     * Assigns sequences to the records and appends them. Appends that arrive
+     * together share one fsync. Once the records are durable, and in
+     * sequence order across all callers, {@code onDurable} runs and then the
+     * returned future completes.
+     */
+    CompletableFuture<Void> append(List<BidJournalRecord> records, Runnable onDurable);
+
+    /**
+     * Tells the journal that every record up to {@code sequence} is now in
+     * the database.
+     */
+    void checkpoint(long sequence);
+
+    /**
+     * Stops accepting appends and waits for pending ones to be written.
+     */
+    void close();
+}
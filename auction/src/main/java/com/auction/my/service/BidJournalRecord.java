@@ -0,0 +1,101 @@
+package com.auction.my.service;
+
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.zip.CRC32;
+
+/**
+ * One fixed-size entry of the bid journal. The binary layout is
+ * sequence, type, auctionId, bidderId, amount, timestamp (epoch millis)
+ * followed by a CRC32 of those fields, 48 bytes in total, so a torn write at
+ * the end of the file is detected and dropped on recovery.
+ */
+@Getter
+public final class BidJournalRecord {
+
+    public static final int SIZE = 48;
+    private static final int PAYLOAD_SIZE = SIZE - Integer.BYTES;
+
+    public enum Type {
+        BID,
+        MAX_BID,
+        CLOSE,
+        // A late bid moved the auction's end time to the record's timestamp
+        EXTEND
+    }
+
+    private long sequence;
+    private final Type type;
+    private final long auctionId;
+    private final long bidderId;
+    private final double amount;
+    private final long timestamp;
+
+    public BidJournalRecord(long sequence, Type type, long auctionId, long bidderId, double amount, long timestamp) {
+        this.sequence = sequence;
+        this.type = type;
+        this.auctionId = auctionId;
+        this.bidderId = bidderId;
+        this.amount = amount;
+        this.timestamp = timestamp;
+    }
+
+    public static BidJournalRecord of(Type type, long auctionId, long bidderId, double amount, LocalDateTime time) {
+        return new BidJournalRecord(0, type, auctionId, bidderId, amount, toEpochMillis(time));
+    }
+
+    /**
+     * Sequences are handed out by the journal when the record is appended.
+     */
+    void assignSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public LocalDateTime getTime() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.putLong(sequence);
+        buffer.putInt(type.ordinal());
+        buffer.putLong(auctionId);
+        buffer.putLong(bidderId);
+        buffer.putDouble(amount);
+        buffer.putLong(timestamp);
+        buffer.putInt(checksum(buffer, start));
+    }
+
+    /**
+     * Reads the record at the buffer's position, or returns {@code null} if
+     * the bytes there are empty or fail the checksum.
+     */
+    public static BidJournalRecord readFrom(ByteBuffer buffer) {
+        int start = buffer.position();
+        long sequence = buffer.getLong();
+        int type = buffer.getInt();
+        long auctionId = buffer.getLong();
+        long bidderId = buffer.getLong();
+        double amount = buffer.getDouble();
+        long timestamp = buffer.getLong();
+        int storedChecksum = buffer.getInt();
+        if (sequence <= 0 || type < 0 || type >= Type.values().length || storedChecksum != checksum(buffer, start)) {
+            return null;
+        }
+        return new BidJournalRecord(sequence, Type.values()[type], auctionId, bidderId, amount, timestamp);
+    }
+
+    private static int checksum(ByteBuffer buffer, int start) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(start).limit(start + PAYLOAD_SIZE));
+        return (int) crc.getValue();
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -1,82 +1,347 @@
 package com.auction.my.service;
 
+import com.auction.my.dto.AuctionBidSnapshot;
 import com.auction.my.dto.BidDto;
+import com.auction.my.dto.CursorPage;
+import com.auction.my.dto.MaxBidDto;
 import com.auction.my.dto.PlaceBidRequest;
-import com.auction.my.entity.AuctionItem;
+import com.auction.my.dto.PlaceMaxBidRequest;
 import com.auction.my.entity.Bid;
 import com.auction.my.entity.User;
+import com.auction.my.exception.AuctionNotFoundException;
+import com.auction.my.exception.UnauthorizedException;
+import com.auction.my.exception.ValidationException;
 import com.auction.my.repository.AuctionItemRepository;
 import com.auction.my.repository.BidRepository;
+import com.auction.my.repository.ProxyBidRepository;
 import com.auction.my.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 @Transactional
 public class BidService {
 
+    /*
+     * The DB-native bid: a compare-and-set update on the auction row, which
+     * draws the bid's id up front so the row can point at it, the soft-close
+     * extension if the bid is a late one, and the bid insert, all in one
+     * statement. The self-join locks the row first and returns what the
+     * update replaced, i.e. the bidder who was just outbid.
+     */
+    private static final String ACCEPT_BID =
+            "WITH accepted AS (" +
+                    "UPDATE auction_item a SET current_highest_bid = ?, highest_bidder_id = ?, " +
+                    "highest_bidder_name = ?, highest_bid_id = nextval(pg_get_serial_sequence('bid', 'id')), " +
+                    "end_time = CASE WHEN a.end_time <= ? THEN a.end_time + ? * INTERVAL '1 second' " +
+                    "ELSE a.end_time END " +
+                    "FROM (SELECT id, highest_bidder_id, end_time FROM auction_item WHERE id = ? FOR UPDATE) previous " +
+                    "WHERE a.id = previous.id AND a.is_sold IS NOT TRUE " +
+                    "AND a.start_time <= ? AND a.end_time > ? " +
+                    "AND a.seller_id <> ? AND a.current_highest_bid < ? " +
+                    "RETURNING a.highest_bid_id, a.title, a.seller_id, a.end_time, " +
+                    "previous.end_time AS previous_end_time, previous.highest_bidder_id AS previous_bidder_id, " +
+                    "EXISTS (SELECT 1 FROM proxy_bid p WHERE p.auction_item_id = a.id) AS has_proxies" +
+            "), inserted AS (" +
+                    "INSERT INTO bid (id, auction_item_id, bidder_id, amount, bid_time) " +
+                    "SELECT highest_bid_id, ?, ?, ?, ? FROM accepted" +
+            ") SELECT * FROM accepted";
+
+    // Cursor orders; each matches the order of the offset variant.
+    private static final Sort AUCTION_BIDS_CURSOR_ORDER = Sort.by(Sort.Direction.DESC, "amount", "id");
+    private static final Sort USER_BIDS_CURSOR_ORDER = Sort.by(Sort.Direction.DESC, "bidTime", "id");
+
     private final BidRepository bidRepository;
     private final AuctionItemRepository auctionItemRepository;
     private final UserRepository userRepository;
     private final UserService userService;
+    private final BidEngine bidEngine;
     private final NotificationService notificationService;
+    private final TrendingTracker trendingTracker;
+    private final EndingSoonIndex endingSoonIndex;
+    private final SearchCache searchCache;
+    private final AuctionDetailCache auctionDetailCache;
+    private final SoftClose softClose;
+    private final ProxyBidRepository proxyBidRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean bidEngineEnabled;
+    private final double increment;
 
     // ✅ Constructor name should match the class name
-    public BidService(BidRepository bidRepository, AuctionItemRepository auctionItemRepository, UserRepository userRepository, UserService userService, NotificationService notificationService) {
+    public BidService(BidRepository bidRepository, AuctionItemRepository auctionItemRepository, UserRepository userRepository, UserService userService,
+                      BidEngine bidEngine, NotificationService notificationService, TrendingTracker trendingTracker,
+                      EndingSoonIndex endingSoonIndex, SearchCache searchCache,
+                      AuctionDetailCache auctionDetailCache, SoftClose softClose,
+                      ProxyBidRepository proxyBidRepository,
+                      PlatformTransactionManager transactionManager, JdbcTemplate jdbcTemplate,
+                      @Value("${auction.bid-engine.enabled:true}") boolean bidEngineEnabled,
+                      @Value("${auction.bidding.increment:1.0}") double increment) {
         this.bidRepository = bidRepository;
         this.auctionItemRepository = auctionItemRepository;
         this.userRepository = userRepository;
         this.userService = userService;
+        this.bidEngine = bidEngine;
         this.notificationService = notificationService;
+        this.trendingTracker = trendingTracker;
+        this.endingSoonIndex = endingSoonIndex;
+        this.searchCache = searchCache;
+        this.auctionDetailCache = auctionDetailCache;
+        this.softClose = softClose;
+        this.proxyBidRepository = proxyBidRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+        this.bidEngineEnabled = bidEngineEnabled;
+        this.increment = increment;
     }
 
+    /**
+     * Bids are decided by the in-memory {@link BidEngine}, or directly by the
+     * database when the engine is disabled. Neither path needs a transaction
+     * on the request thread.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public BidDto placeBid(Long auctionId, PlaceBidRequest request) {
-        AuctionItem auction = auctionItemRepository.findById(auctionId)
-                .orElseThrow(() -> new RuntimeException("Auction not found"));
-
-        if (auction.getSold() != null) {
-            throw new RuntimeException("Auction is already closed");
+        if (request.getAmount() == null) {
+            throw new ValidationException("Bid amount is required");
         }
 
-        if (auction.getEndTime().isBefore(LocalDateTime.now())) {
-            throw new RuntimeException("Auction has ended");
+        User bidder = userService.getAuthenticatedUser();
+        if (!bidEngineEnabled) {
+            List<AcceptedRow> rows = placeBidInDatabase(auctionId, bidder, request.getAmount());
+            rows.forEach(row -> trendingTracker.recordBid(auctionId, row.bidderId()));
+            AcceptedRow placed = rows.get(0);
+            AcceptedRow highest = rows.get(rows.size() - 1);
+            endingSoonIndex.bidPlaced(auctionId, highest.bidId(), highest.amount(), highest.bidderName());
+            searchCache.bidPlaced(auctionId);
+            auctionDetailCache.invalidate(auctionId);
+            return new BidDto(
+                    placed.bidId(),
+                    auctionId,
+                    placed.bidderId(),
+                    placed.bidderName(),
+                    placed.amount(),
+                    placed.bidTime(),
+                    highest.endTime(),
+                    placed.title()
+            );
         }
 
-        if (request.getAmount() <= auction.getCurrentHighestBid()) {
-            throw new RuntimeException("Bid amount must be higher than current highest bid");
-        }
+        BidEngine.Resolution resolution = bidEngine.placeBid(
+                auctionId,
+                bidder.getId(),
+                bidder.getFullName(),
+                request.getAmount()
+        );
+        recordAccepted(resolution);
+        BidEngine.AcceptedBid accepted = resolution.getBids().get(0);
 
-        User bidder = userRepository.findById(userService.getCurrentUser().getId())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        return new BidDto(
+                null,
+                accepted.getAuctionId(),
+                accepted.getBidderId(),
+                accepted.getBidderName(),
+                accepted.getAmount(),
+                accepted.getBidTime(),
+                resolution.getEndTime(),
+                accepted.getAuctionTitle()
+        );
+    }
 
-        if (auction.getSeller().getId().equals(bidder.getId())) {
-            throw new RuntimeException("Seller cannot bid on their own auction");
+    /**
+     * Registers a standing maximum bid. New ones need the bid engine, so they
+     * are rejected when it is disabled; those already standing still answer
+     * bids placed in the database.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public MaxBidDto placeMaxBid(Long auctionId, PlaceMaxBidRequest request) {
+        if (request.getMaxAmount() == null) {
+            throw new ValidationException("Maximum bid amount is required");
+        }
+        if (!bidEngineEnabled) {
+            throw new ValidationException("Maximum bids are not available");
         }
 
-        Bid bid = new Bid(
-                auction,
-                bidder,
-                request.getAmount(),
-                LocalDateTime.now()
+        User bidder = userService.getAuthenticatedUser();
+        BidEngine.Resolution resolution = bidEngine.placeMaxBid(
+                auctionId,
+                bidder.getId(),
+                bidder.getFullName(),
+                request.getMaxAmount()
+        );
+        recordAccepted(resolution);
+
+        return new MaxBidDto(
+                auctionId,
+                request.getMaxAmount(),
+                resolution.getHighestAmount(),
+                bidder.getId().equals(resolution.getHighestBidderId())
         );
+    }
+
+    /**
+     * Passes bids the engine accepted on to the in-memory listings. Proxy bids
+     * placed on the bidders' behalf count as activity too. The engine's bids
+     * have no id until they are written, and cached pages are dropped again
+     * once they are. An extension is applied once it is journaled.
+     */
+    private void recordAccepted(BidEngine.Resolution resolution) {
+        BidEngine.AcceptedBid highest = null;
+        for (BidEngine.AcceptedBid bid : resolution.getBids()) {
+            trendingTracker.recordBid(bid.getAuctionId(), bid.getBidderId());
+            if (highest == null || bid.getAmount() > highest.getAmount()) {
+                highest = bid;
+            }
+        }
+        if (highest != null) {
+            endingSoonIndex.bidPlaced(highest.getAuctionId(), null, highest.getAmount(), highest.getBidderName());
+            searchCache.bidPlaced(highest.getAuctionId());
+            auctionDetailCache.invalidate(highest.getAuctionId());
+        }
+        if (resolution.isExtended()) {
+            softClose.extended(resolution.getAuctionId(), resolution.getEndTime());
+        }
+    }
+
+    /**
+     * DB-native acceptance in one statement, see {@link #ACCEPT_BID}. The
+     * auction entity, its bids and its images are never loaded; whether a
+     * row came back alone decides whether the bid won. If the auction has
+     * standing maximum bids, they answer under the same row lock, by
+     * {@link ProxyBidding}, one more statement per answer. Returns the
+     * caller's bid first and the highest last.
+     */
+    private List<AcceptedRow> placeBidInDatabase(Long auctionId, User bidder, double amount) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            AcceptedRow placed = acceptInDatabase(auctionId, bidder.getId(), bidder.getFullName(), amount, now);
+            if (placed == null) {
+                throw bidRejection(auctionId, bidder.getId(), now);
+            }
+
+            List<AcceptedRow> rows = new ArrayList<>(3);
+            rows.add(placed);
+            Set<Long> outbidBidderIds = new LinkedHashSet<>();
+            if (placed.previousBidderId() != null) {
+                outbidBidderIds.add(placed.previousBidderId());
+            }
+            if (placed.hasProxies()) {
+                for (ProxyBidding.Answer answer : answerProxies(auctionId, bidder.getId(), amount)) {
+                    AcceptedRow row = acceptInDatabase(auctionId, answer.bidderId(), answer.bidderName(),
+                            answer.amount(), now);
+                    if (row == null) {
+                        throw new IllegalStateException("Proxy bid on auction " + auctionId + " was not accepted");
+                    }
+                    rows.add(row);
+                    outbidBidderIds.add(row.previousBidderId());
+                }
+            }
+
+            AcceptedRow highest = rows.get(rows.size() - 1);
+            if (rows.stream().anyMatch(AcceptedRow::extended)) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        softClose.extended(auctionId, highest.endTime());
+                    }
+                });
+            }
+            notificationService.notifyNewBid(highest.title(), highest.sellerId(), highest.amount(),
+                    highest.bidderId(), outbidBidderIds);
+            return rows;
+        });
+    }
 
-        auction.setCurrentHighestBid(request.getAmount());
-        auctionItemRepository.save(auction);
+    /**
+     * Runs {@link #ACCEPT_BID}; null when the bid was not accepted.
+     */
+    private AcceptedRow acceptInDatabase(Long auctionId, Long bidderId, String bidderName, double amount,
+                                         LocalDateTime now) {
+        LocalDateTime extendsEndingBy = softClose.extendsEndingBy(now);
+        List<AcceptedRow> rows = jdbcTemplate.query(ACCEPT_BID,
+                (rs, rowNum) -> new AcceptedRow(
+                        rs.getLong("highest_bid_id"),
+                        bidderId,
+                        bidderName,
+                        amount,
+                        now,
+                        rs.getString("title"),
+                        rs.getLong("seller_id"),
+                        rs.getTimestamp("end_time").toLocalDateTime(),
+                        rs.getTimestamp("end_time").after(rs.getTimestamp("previous_end_time")),
+                        rs.getObject("previous_bidder_id", Long.class),
+                        rs.getBoolean("has_proxies")),
+                amount, bidderId, bidderName,
+                new SqlParameterValue(Types.TIMESTAMP,
+                        extendsEndingBy != null ? Timestamp.valueOf(extendsEndingBy) : null),
+                softClose.getExtensionSeconds(),
+                auctionId,
+                Timestamp.valueOf(now), Timestamp.valueOf(now), bidderId, amount,
+                auctionId, bidderId, amount, Timestamp.valueOf(now));
+        return rows.isEmpty() ? null : rows.get(0);
+    }
 
-        Bid savedBid = bidRepository.save(bid);
-        notificationService.notifyNewBid(savedBid);
+    /**
+     * The bids the auction's standing maximums place after {@code bidderId}
+     * bid {@code amount}.
+     */
+    private List<ProxyBidding.Answer> answerProxies(Long auctionId, Long bidderId, double amount) {
+        List<ProxyBidding.Proxy> ranked = proxyBidRepository.findStandingByAuctionId(auctionId).stream()
+                .map(proxy -> new ProxyBidding.Proxy(proxy.getBidderId(), proxy.getBidderName(),
+                        proxy.getMaxAmount(), proxy.getCreatedAt()))
+                .sorted(ProxyBidding.ORDER)
+                .toList();
+        if (ranked.isEmpty()) {
+            return List.of();
+        }
+        return ProxyBidding.answer(ranked.get(0), ranked.size() > 1 ? ranked.get(1) : null, bidderId, amount,
+                increment);
+    }
 
-        return convertToDto(savedBid);
+    /**
+     * Only called once the conditional update matched nothing, to tell the
+     * caller which condition failed.
+     */
+    private RuntimeException bidRejection(Long auctionId, Long bidderId, LocalDateTime now) {
+        AuctionBidSnapshot auction = auctionItemRepository.findBidSnapshotById(auctionId).orElse(null);
+        if (auction == null) {
+            return new AuctionNotFoundException("Auction not found with id: " + auctionId);
+        }
+        if (Boolean.TRUE.equals(auction.getIsSold())) {
+            return new ValidationException("Auction is already closed");
+        }
+        if (auction.getStartTime() != null && auction.getStartTime().isAfter(now)) {
+            return new ValidationException("Auction has not started yet");
+        }
+        if (!auction.getEndTime().isAfter(now)) {
+            return new ValidationException("Auction has ended");
+        }
+        if (auction.getSellerId().equals(bidderId)) {
+            return new UnauthorizedException("Seller cannot bid on their own auction");
+        }
+        return new ValidationException("Bid amount must be higher than current highest bid");
     }
 
     public Page<BidDto> getAuctionBids(Long auctionId, int page, int size) {
@@ -85,26 +350,36 @@ public class BidService {
                 PageRequest.of(page, size)
         ).map(this::convertToDto);
     }
-    public Page<BidDto> getCurrentUserHighestBids(int page, int size) {
-        // Get the current user
-        User currentUser = userRepository.findById(userService.getCurrentUser().getId())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        // Fetch the highest bids per auction item placed by the current user
-        List<Bid> highestBids = bidRepository.findHighestBidsByUser(currentUser);
 
-        // Paginate the results manually
-        int start = Math.min(page * size, highestBids.size());
-        int end = Math.min(start + size, highestBids.size());
-        List<Bid> paginatedBids = highestBids.subList(start, end);
+    public CursorPage<BidDto> getAuctionBids(Long auctionId, String after, int size) {
+        return KeysetCursor.page(
+                bidRepository.findByAuctionItemId(auctionId, KeysetCursor.decode(after),
+                        AUCTION_BIDS_CURSOR_ORDER, Limit.of(size)),
+                this::convertToDto);
+    }
 
-        // Convert the bids to DTOs
-        List<BidDto> bidDtos = paginatedBids.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    /**
+     * The current user's best bid on each auction, one page at a time, with
+     * whether they are winning it.
+     */
+    public Page<BidDto> getCurrentUserHighestBids(int page, int size) {
+        User currentUser = userService.getAuthenticatedUser();
 
-        // Create a Page object from the list
-        return new PageImpl<>(bidDtos, PageRequest.of(page, size), highestBids.size());
+        return bidRepository.findStandingBidsByBidderId(currentUser.getId(), PageRequest.of(page, size))
+                .map(standing -> {
+                    BidDto dto = new BidDto(
+                            standing.getId(),
+                            standing.getAuctionId(),
+                            currentUser.getId(),
+                            currentUser.getFullName(),
+                            standing.getAmount(),
+                            standing.getBidTime(),
+                            standing.getAuctionEndTime(),
+                            standing.getAuctionTitle()
+                    );
+                    dto.setWinning(standing.getWinning());
+                    return dto;
+                });
     }
 
 
@@ -118,6 +393,16 @@ public class BidService {
         ).map(this::convertToDto);
     }
 
+    public CursorPage<BidDto> getCurrentUserBids(String after, int size) {
+        User currentUser = userRepository.findById(userService.getCurrentUser().getId())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        return KeysetCursor.page(
+                bidRepository.findByBidder(currentUser, KeysetCursor.decode(after),
+                        USER_BIDS_CURSOR_ORDER, Limit.of(size)),
+                this::convertToDto);
+    }
+
     public BidDto getHighestBid(Long auctionId) {
         return bidRepository.findTopByAuctionItemIdOrderByAmountDesc(auctionId)
                 .map(this::convertToDto)
@@ -140,4 +425,12 @@ public class BidService {
     public Optional<Bid> findById(Long id) {
         return bidRepository.findById(id);
     }
+
+    /**
+     * A bid accepted by {@link #ACCEPT_BID}, and where it left the auction.
+     */
+    private record AcceptedRow(Long bidId, Long bidderId, String bidderName, double amount, LocalDateTime bidTime,
+                               String title, Long sellerId, LocalDateTime endTime, boolean extended,
+                               Long previousBidderId, boolean hasProxies) {
+    }
 }
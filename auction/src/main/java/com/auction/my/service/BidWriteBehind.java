@@ -0,0 +1,387 @@
+package com.auction.my.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes accepted bids to the database behind the request path. Bids that
+ * are durable in the {@link BidJournal} are queued in a bounded queue; a
+ * single flusher drains it and writes each batch in one transaction: one
+ * multi-row INSERT into {@code bid}, one upsert per maximum bid, one end
+ * time update per soft-close extension and one UPDATE that moves the price
+ * and the highest bid pointer of every auction the batch touched. A full
+ * queue blocks the journal, which pushes back on bidders instead of growing
+ * without bound.
+ * <p>
+ * A batch that breaks a constraint, e.g. with a bid on an auction deleted in
+ * the meantime, is split and written in halves until the record at fault is
+ * alone; that record is skipped, logged with its sequence, and the rest go
+ * through. Any other failure is retried with a growing delay.
+ * <p>
+ * Close records pass through too, so that {@link #written(long)} tells the
+ * settlement when every bid on an auction it is about to close is in the
+ * database.
+ * <p>
+ * At startup, journal records that never reached the database are written
+ * before the bid engine takes any traffic.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class BidWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(BidWriteBehind.class);
+    private static final long MAX_RETRY_DELAY_MS = 30_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationService notificationService;
+    private final EndingSoonIndex endingSoonIndex;
+    private final SearchCache searchCache;
+    private final AuctionDetailCache auctionDetailCache;
+    private final BidJournal journal;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final Thread flusher = new Thread(this::run, "bid-write-behind");
+    private final Set<Long> recoveredAuctionIds = new LinkedHashSet<>();
+
+    // Callers of written(), by the sequence they wait for
+    private final ConcurrentSkipListMap<Long, CompletableFuture<Void>> waiters = new ConcurrentSkipListMap<>();
+
+    private volatile boolean running;
+    // Every record up to here is in the database, or was skipped.
+    private volatile long writtenSequence;
+
+    public BidWriteBehind(JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          NotificationService notificationService,
+                          EndingSoonIndex endingSoonIndex,
+                          SearchCache searchCache,
+                          AuctionDetailCache auctionDetailCache,
+                          BidJournal journal,
+                          @Value("${auction.write-behind.capacity:10000}") int capacity,
+                          @Value("${auction.write-behind.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.notificationService = notificationService;
+        this.endingSoonIndex = endingSoonIndex;
+        this.searchCache = searchCache;
+        this.auctionDetailCache = auctionDetailCache;
+        this.journal = journal;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        Long flushed = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(journal_sequence), 0) FROM bid", Long.class);
+        long lastSequence = flushed != null ? flushed : 0;
+
+        // The queue is FIFO in sequence order, so everything at or below the
+        // highest sequence in the bid table has been written.
+        List<BidJournalRecord> unflushed = journal.recover(lastSequence);
+        for (BidJournalRecord record : unflushed) {
+            if (record.getType() == BidJournalRecord.Type.CLOSE) {
+                recoveredAuctionIds.remove(record.getAuctionId());
+            } else {
+                recoveredAuctionIds.add(record.getAuctionId());
+            }
+        }
+        if (!unflushed.isEmpty()) {
+            log.info("Replaying {} bid journal records into the database", unflushed.size());
+            for (int from = 0; from < unflushed.size(); from += batchSize) {
+                writeIsolating(unflushed.subList(from, Math.min(from + batchSize, unflushed.size())), new HashSet<>());
+            }
+        }
+
+        journal.start(lastSequence);
+        writtenSequence = unflushed.isEmpty() ? lastSequence : unflushed.get(unflushed.size() - 1).getSequence();
+        running = true;
+        flusher.start();
+    }
+
+    /**
+     * Open auctions that had bids in the journal which had not reached the
+     * database at startup, i.e. the auctions that were live when the
+     * application stopped.
+     */
+    public Set<Long> getRecoveredAuctionIds() {
+        return Collections.unmodifiableSet(recoveredAuctionIds);
+    }
+
+    /**
+     * Completes once every journal record up to {@code sequence} has been
+     * written to the database, or skipped.
+     */
+    public CompletableFuture<Void> written(long sequence) {
+        if (sequence <= writtenSequence) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> written = waiters.computeIfAbsent(sequence, key -> new CompletableFuture<>());
+        // The flusher may have moved on before the future was registered.
+        if (sequence <= writtenSequence) {
+            waiters.remove(sequence);
+            written.complete(null);
+        }
+        return written;
+    }
+
+    /**
+     * Called by the journal once the records of a resolution are durable,
+     * or of a close, without a resolution. Blocks while the queue is full.
+     */
+    public void enqueue(BidEngine.Resolution resolution, List<BidJournalRecord> records) {
+        try {
+            queue.put(new Pending(resolution, records));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing bids for the database", e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        journal.close();
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) throws InterruptedException {
+        List<BidJournalRecord> records = new ArrayList<>();
+        for (Pending pending : batch) {
+            records.addAll(pending.records);
+        }
+
+        long delay = 100;
+        List<Object[]> highestBids;
+        Set<Long> skipped = new HashSet<>();
+        while (true) {
+            try {
+                skipped.clear();
+                highestBids = writeIsolating(records, skipped);
+                break;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    // Left in the journal; written on the next start.
+                    log.error("Giving up on {} bid journal records at shutdown", records.size(), e);
+                    return;
+                }
+                log.error("Failed to write {} bid journal records, retrying in {} ms", records.size(), delay, e);
+                Thread.sleep(delay);
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+            }
+        }
+        long last = records.get(records.size() - 1).getSequence();
+        journal.checkpoint(last);
+        writtenSequence = last;
+        Map<Long, CompletableFuture<Void>> passed = waiters.headMap(last, true);
+        passed.values().forEach(written -> written.complete(null));
+        passed.clear();
+        highestBids.forEach(moved -> {
+            endingSoonIndex.bidPlaced((Long) moved[0], (Long) moved[1], (Double) moved[2], (String) moved[3]);
+            // Pages read since the bid was accepted still had the old price
+            searchCache.bidPlaced((Long) moved[0]);
+            auctionDetailCache.invalidate((Long) moved[0]);
+        });
+
+        for (Pending pending : batch) {
+            if (pending.resolution != null
+                    && pending.records.stream().noneMatch(record -> skipped.contains(record.getSequence()))) {
+                notifyBids(pending.resolution);
+            }
+        }
+    }
+
+    /**
+     * Writes the records like {@link #write(List)}, but when they break a
+     * constraint, writes each half on its own instead, down to single
+     * records; one that still fails is left out and its sequence added to
+     * {@code skipped}. Halves are written in order, so whatever reaches the
+     * database is still a prefix of the journal apart from skipped records.
+     */
+    private List<Object[]> writeIsolating(List<BidJournalRecord> records, Set<Long> skipped) {
+        try {
+            return write(records);
+        } catch (DataIntegrityViolationException e) {
+            if (records.size() == 1) {
+                BidJournalRecord record = records.get(0);
+                log.error("Skipping bid journal record {} ({} on auction {} by user {}), it cannot be written: {}",
+                        record.getSequence(), record.getType(), record.getAuctionId(), record.getBidderId(),
+                        e.getMostSpecificCause().getMessage());
+                skipped.add(record.getSequence());
+                return List.of();
+            }
+            int half = records.size() / 2;
+            List<Object[]> highestBids = new ArrayList<>(writeIsolating(records.subList(0, half), skipped));
+            highestBids.addAll(writeIsolating(records.subList(half, records.size()), skipped));
+            return highestBids;
+        }
+    }
+
+    private List<Object[]> write(List<BidJournalRecord> records) {
+        List<BidJournalRecord> bids = new ArrayList<>();
+        List<BidJournalRecord> maxBids = new ArrayList<>();
+        List<BidJournalRecord> extensions = new ArrayList<>();
+        for (BidJournalRecord record : records) {
+            if (record.getType() == BidJournalRecord.Type.BID) {
+                bids.add(record);
+            } else if (record.getType() == BidJournalRecord.Type.MAX_BID) {
+                maxBids.add(record);
+            } else if (record.getType() == BidJournalRecord.Type.EXTEND) {
+                extensions.add(record);
+            }
+        }
+
+        return transactionTemplate.execute(status -> {
+            insertBids(bids);
+            upsertMaxBids(maxBids);
+            extendEndTimes(extensions);
+            return moveHighestBids(bids);
+        });
+    }
+
+    private void insertBids(List<BidJournalRecord> bids) {
+        if (bids.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO bid (auction_item_id, bidder_id, amount, bid_time, journal_sequence) VALUES ");
+        List<Object> args = new ArrayList<>(bids.size() * 5);
+        for (int i = 0; i < bids.size(); i++) {
+            BidJournalRecord bid = bids.get(i);
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+            args.add(bid.getAuctionId());
+            args.add(bid.getBidderId());
+            args.add(bid.getAmount());
+            args.add(Timestamp.valueOf(bid.getTime()));
+            args.add(bid.getSequence());
+        }
+        // Replayed records may already be there.
+        sql.append(" ON CONFLICT (journal_sequence) DO NOTHING");
+        jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+
+    private void upsertMaxBids(List<BidJournalRecord> maxBids) {
+        if (maxBids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO proxy_bid (auction_item_id, bidder_id, max_amount, created_at) VALUES (?, ?, ?, ?) " +
+                        "ON CONFLICT (auction_item_id, bidder_id) " +
+                        "DO UPDATE SET max_amount = EXCLUDED.max_amount, created_at = EXCLUDED.created_at",
+                maxBids,
+                maxBids.size(),
+                (ps, maxBid) -> {
+                    ps.setLong(1, maxBid.getAuctionId());
+                    ps.setLong(2, maxBid.getBidderId());
+                    ps.setDouble(3, maxBid.getAmount());
+                    ps.setTimestamp(4, Timestamp.valueOf(maxBid.getTime()));
+                });
+    }
+
+    /**
+     * Moves the end time of auctions extended by late bids. An end time is
+     * only ever moved later, so replayed records change nothing.
+     */
+    private void extendEndTimes(List<BidJournalRecord> extensions) {
+        if (extensions.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "UPDATE auction_item SET end_time = GREATEST(end_time, ?) WHERE id = ? AND is_sold IS NOT TRUE",
+                extensions,
+                extensions.size(),
+                (ps, extension) -> {
+                    ps.setTimestamp(1, Timestamp.valueOf(extension.getTime()));
+                    ps.setLong(2, extension.getAuctionId());
+                });
+    }
+
+    /**
+     * Points each auction at its best bid of the batch, found by journal
+     * sequence so the ids generated by the insert need not be read back.
+     * Returns the (auction id, bid id, amount, bidder name) of each auction
+     * moved.
+     */
+    private List<Object[]> moveHighestBids(List<BidJournalRecord> bids) {
+        if (bids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+                "UPDATE auction_item a SET current_highest_bid = b.amount, highest_bid_id = b.id, " +
+                        "highest_bidder_id = b.bidder_id, highest_bidder_name = u.username " +
+                        "FROM (SELECT DISTINCT ON (auction_item_id) id, auction_item_id, bidder_id, amount FROM bid " +
+                        "      WHERE journal_sequence BETWEEN ? AND ? " +
+                        "      ORDER BY auction_item_id, amount DESC, id) b " +
+                        "JOIN users u ON u.id = b.bidder_id " +
+                        "WHERE a.id = b.auction_item_id AND a.current_highest_bid <= b.amount " +
+                        "AND a.is_sold IS NOT TRUE " +
+                        "RETURNING a.id, b.id, b.amount, u.username",
+                (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getDouble(3), rs.getString(4)},
+                bids.get(0).getSequence(),
+                bids.get(bids.size() - 1).getSequence());
+    }
+
+    private void notifyBids(BidEngine.Resolution resolution) {
+        if (resolution.getBids().isEmpty()) {
+            return;
+        }
+        try {
+            notificationService.notifyNewBid(resolution.getAuctionTitle(), resolution.getSellerId(),
+                    resolution.getHighestAmount(), resolution.getHighestBidderId(), resolution.getOutbidBidderIds());
+        } catch (RuntimeException e) {
+            log.warn("Failed to send bid notifications for auction {}", resolution.getAuctionId(), e);
+        }
+    }
+
+    private static final class Pending {
+        private final BidEngine.Resolution resolution;
+        private final List<BidJournalRecord> records;
+
+        private Pending(BidEngine.Resolution resolution, List<BidJournalRecord> records) {
+            this.resolution = resolution;
+            this.records = records;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.auction.my.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * One deadline per auction in a {@link DelayQueue}, and a timer thread that
+ * takes them as they pass, together with every other passed one up to a
+ * chunk, and hands the auction ids on. Scheduling an auction again replaces
+ * its deadline; the superseded one is skipped when it comes up.
+ */
+final class DeadlineTimer {
+
+    private static final Logger log = LoggerFactory.getLogger(DeadlineTimer.class);
+
+    private final DelayQueue<Deadline> deadlines = new DelayQueue<>();
+    // The live deadline per auction
+    private final ConcurrentHashMap<Long, Deadline> scheduled = new ConcurrentHashMap<>();
+    private final int chunkSize;
+    private final Thread timer;
+
+    private volatile Consumer<List<Long>> handler;
+
+    DeadlineTimer(String name, int chunkSize) {
+        this.chunkSize = chunkSize;
+        this.timer = new Thread(this::run, name);
+        this.timer.setDaemon(true);
+    }
+
+    /**
+     * Starts handing passed deadlines to {@code handler}, on the timer
+     * thread; those that passed already come first.
+     */
+    void start(Consumer<List<Long>> handler) {
+        this.handler = handler;
+        timer.start();
+    }
+
+    void stop() {
+        timer.interrupt();
+    }
+
+    void schedule(Long auctionId, LocalDateTime time) {
+        Deadline deadline = new Deadline(auctionId, toEpochMillis(time));
+        scheduled.put(auctionId, deadline);
+        deadlines.put(deadline);
+    }
+
+    /**
+     * Like {@link #schedule}, but a no-op when the deadline is unchanged.
+     */
+    void reschedule(Long auctionId, LocalDateTime time) {
+        Deadline current = scheduled.get(auctionId);
+        if (current == null || current.millis != toEpochMillis(time)) {
+            schedule(auctionId, time);
+        }
+    }
+
+    void cancel(Long auctionId) {
+        scheduled.remove(auctionId);
+    }
+
+    int size() {
+        return scheduled.size();
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private void run() {
+        try {
+            List<Deadline> passed = new ArrayList<>(chunkSize);
+            while (!Thread.currentThread().isInterrupted()) {
+                passed.add(deadlines.take());
+                deadlines.drainTo(passed, chunkSize - 1);
+                List<Long> auctionIds = passed.stream()
+                        .filter(deadline -> scheduled.remove(deadline.auctionId, deadline))
+                        .map(deadline -> deadline.auctionId)
+                        .toList();
+                passed.clear();
+                if (!auctionIds.isEmpty()) {
+                    handle(auctionIds);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handle(List<Long> auctionIds) {
+        try {
+            handler.accept(auctionIds);
+        } catch (RuntimeException e) {
+            // The timer must keep running for everyone else
+            log.error("{} failed on auctions {}", timer.getName(), auctionIds, e);
+        }
+    }
+
+    private static final class Deadline implements Delayed {
+        private final Long auctionId;
+        private final long millis;
+
+        private Deadline(Long auctionId, long millis) {
+            this.auctionId = auctionId;
+            this.millis = millis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(millis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(millis, ((Deadline) other).millis);
+        }
+    }
+}
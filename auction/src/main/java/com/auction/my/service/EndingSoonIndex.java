@@ -0,0 +1,248 @@
+package com.auction.my.service;
+
+import com.auction.my.dto.AuctionItemDtoWithoutImages;
+import com.auction.my.repository.AuctionItemRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The listings of all open auctions in memory, ordered by end time then id
+ * in a {@link ConcurrentSkipListMap}. Ending-soon pages and end time windows
+ * are read from it without touching the database.
+ * <p>
+ * Loaded once at startup, then kept current: auctions are reread after they
+ * are created, updated, started or closed, and bids and views are applied as they
+ * happen. Entries are immutable listings; readers get copies.
+ * <p>
+ * The number of entries is counted as they come and go, since the size of a
+ * skip list view is a walk over it. Offset pages still walk up to their
+ * offset; the cursor reads of {@link #after} do not.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class EndingSoonIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(EndingSoonIndex.class);
+
+    private final AuctionItemRepository auctionItemRepository;
+    private final ConcurrentSkipListMap<Key, Entry> byEndTime = new ConcurrentSkipListMap<>();
+    // Changes to an auction's entry are serialized through compute on this map.
+    private final ConcurrentHashMap<Long, Entry> byId = new ConcurrentHashMap<>();
+    // Entries in byEndTime, ended ones included until removeEnded drops them
+    private final AtomicInteger indexed = new AtomicInteger();
+
+    public EndingSoonIndex(AuctionItemRepository auctionItemRepository) {
+        this.auctionItemRepository = auctionItemRepository;
+    }
+
+    @PostConstruct
+    public void load() {
+        List<AuctionItemDtoWithoutImages> listings = auctionItemRepository.findAllActiveListings(LocalDateTime.now());
+        listings.forEach(listing -> byId.compute(listing.getId(), (id, previous) -> entry(listing, previous)));
+        log.info("Ending-soon index loaded with {} open auctions", listings.size());
+    }
+
+    /**
+     * Rereads an auction after it was created, changed, started or closed;
+     * it is only indexed between its start and end times.
+     */
+    public void refresh(Long auctionId) {
+        LocalDateTime now = LocalDateTime.now();
+        AuctionItemDtoWithoutImages listing = auctionItemRepository.findListingById(auctionId)
+                .filter(found -> !found.getStartTime().isAfter(now) && found.getEndTime().isAfter(now))
+                .orElse(null);
+        byId.compute(auctionId, (id, previous) -> {
+            if (listing == null) {
+                if (previous != null) {
+                    byEndTime.remove(previous.key);
+                    indexed.decrementAndGet();
+                }
+                return null;
+            }
+            if (previous != null && price(previous.listing) > price(listing)) {
+                // Bids the engine accepted but has not written yet
+                listing.setCurrentHighestBid(previous.listing.getCurrentHighestBid());
+                listing.setCurrentHighestBidId(previous.listing.getCurrentHighestBidId());
+                listing.setCurrentHighestBidderUsername(previous.listing.getCurrentHighestBidderUsername());
+            }
+            return entry(listing, previous);
+        });
+    }
+
+    /**
+     * Drops an auction that was closed.
+     */
+    public void remove(Long auctionId) {
+        byId.computeIfPresent(auctionId, (id, entry) -> {
+            byEndTime.remove(entry.key);
+            indexed.decrementAndGet();
+            return null;
+        });
+    }
+
+    /**
+     * Applies a new highest bid to the auction's listing. Bids the engine
+     * accepted come without an id, and again with it once they are written.
+     */
+    public void bidPlaced(Long auctionId, Long bidId, double amount, String bidderName) {
+        byId.computeIfPresent(auctionId, (id, previous) -> {
+            double price = price(previous.listing);
+            if (amount < price || amount == price
+                    && (bidId == null || bidId.equals(previous.listing.getCurrentHighestBidId()))) {
+                return previous;
+            }
+            AuctionItemDtoWithoutImages listing = new AuctionItemDtoWithoutImages(previous.listing);
+            listing.setCurrentHighestBid(amount);
+            listing.setCurrentHighestBidId(bidId);
+            listing.setCurrentHighestBidderUsername(bidderName);
+            return entry(listing, previous);
+        });
+    }
+
+    /**
+     * Moves the auction to its new end time after a late bid extended it.
+     */
+    public void extended(Long auctionId, LocalDateTime endTime) {
+        byId.computeIfPresent(auctionId, (id, previous) -> {
+            if (!endTime.isAfter(previous.listing.getEndTime())) {
+                return previous;
+            }
+            AuctionItemDtoWithoutImages listing = new AuctionItemDtoWithoutImages(previous.listing);
+            listing.setEndTime(endTime);
+            return entry(listing, previous);
+        });
+    }
+
+    /**
+     * Whether the auction has started and not ended yet.
+     */
+    public boolean isOpen(Long auctionId) {
+        Entry entry = byId.get(auctionId);
+        return entry != null && entry.listing.getEndTime().isAfter(LocalDateTime.now());
+    }
+
+    public void recordView(Long auctionId) {
+        Entry entry = byId.get(auctionId);
+        if (entry != null) {
+            entry.views.incrementAndGet();
+        }
+    }
+
+    /**
+     * Open auctions after the (end time, id) position, soonest ending first,
+     * as in the cursor order of the listing queries.
+     */
+    public List<AuctionItemDtoWithoutImages> after(LocalDateTime endTime, long id, int limit) {
+        Key start = new Key(endTime, id);
+        Key open = openFrom(LocalDateTime.now());
+        return read(byEndTime.tailMap(start.compareTo(open) > 0 ? start : open, false), 0, limit);
+    }
+
+    public Page<AuctionItemDtoWithoutImages> page(int page, int size) {
+        Key from = openFrom(LocalDateTime.now());
+        // Only auctions ended since the last removeEnded are walked here.
+        long total = Math.max(0, indexed.get() - byEndTime.headMap(from, true).size());
+        long offset = (long) page * size;
+        List<AuctionItemDtoWithoutImages> content = offset >= total ? List.of()
+                : read(byEndTime.tailMap(from, false), offset, size);
+        return new PageImpl<>(content, PageRequest.of(page, size), total);
+    }
+
+    /**
+     * Open auctions ending between {@code from} and {@code to} inclusive,
+     * soonest first.
+     */
+    public List<AuctionItemDtoWithoutImages> endingBetween(LocalDateTime from, LocalDateTime to, int limit) {
+        Key start = new Key(from, Long.MIN_VALUE);
+        Key open = openFrom(LocalDateTime.now());
+        Key end = new Key(to, Long.MAX_VALUE);
+        start = start.compareTo(open) > 0 ? start : open;
+        if (start.compareTo(end) >= 0) {
+            return List.of();
+        }
+        return read(byEndTime.subMap(start, false, end, true), 0, limit);
+    }
+
+    /**
+     * Drops auctions that have ended; reads already skip them.
+     */
+    @Scheduled(fixedRate = 60000)
+    public void removeEnded() {
+        byEndTime.headMap(openFrom(LocalDateTime.now()), true).values().forEach(ended ->
+                byId.computeIfPresent(ended.listing.getId(), (id, current) -> {
+                    if (current != ended) {
+                        return current;
+                    }
+                    byEndTime.remove(ended.key);
+                    indexed.decrementAndGet();
+                    return null;
+                }));
+    }
+
+    // Called with the auction's byId mapping held, so only one change at a time.
+    private Entry entry(AuctionItemDtoWithoutImages listing, Entry previous) {
+        AtomicLong views = previous != null ? previous.views
+                : new AtomicLong(listing.getViews() != null ? listing.getViews() : 0);
+        Entry entry = new Entry(new Key(listing.getEndTime(), listing.getId()), listing, views);
+        byEndTime.put(entry.key, entry);
+        if (previous == null) {
+            indexed.incrementAndGet();
+        } else if (!previous.key.equals(entry.key)) {
+            byEndTime.remove(previous.key);
+        }
+        return entry;
+    }
+
+    private static List<AuctionItemDtoWithoutImages> read(ConcurrentNavigableMap<Key, Entry> entries, long skip,
+                                                          int limit) {
+        List<AuctionItemDtoWithoutImages> listings = new ArrayList<>(Math.min(limit, 64));
+        Iterator<Entry> iterator = entries.values().iterator();
+        for (long i = 0; i < skip && iterator.hasNext(); i++) {
+            iterator.next();
+        }
+        while (iterator.hasNext() && listings.size() < limit) {
+            Entry entry = iterator.next();
+            AuctionItemDtoWithoutImages listing = new AuctionItemDtoWithoutImages(entry.listing);
+            listing.setViews(entry.views.get());
+            listings.add(listing);
+        }
+        return listings;
+    }
+
+    private static double price(AuctionItemDtoWithoutImages listing) {
+        return listing.getCurrentHighestBid() != null ? listing.getCurrentHighestBid() : 0;
+    }
+
+    // Sorts after every auction ending at or before now
+    private static Key openFrom(LocalDateTime now) {
+        return new Key(now, Long.MAX_VALUE);
+    }
+
+    private record Key(LocalDateTime endTime, long id) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key other) {
+            int byTime = endTime.compareTo(other.endTime);
+            return byTime != 0 ? byTime : Long.compare(id, other.id);
+        }
+    }
+
+    private record Entry(Key key, AuctionItemDtoWithoutImages listing, AtomicLong views) {
+    }
+}
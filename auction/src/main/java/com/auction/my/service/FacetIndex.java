@@ -0,0 +1,244 @@
+package com.auction.my.service;
+
+import com.auction.my.dto.SearchFacets;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Counts auctions per category, brand and price range in memory, for the
+ * facets of a search. Every facet value has a bitmap of the auctions that
+ * have it; a search's counts are cardinalities of bitmap intersections, so
+ * the database is not asked for any of them. Bits are dense ordinals handed
+ * out as auctions are indexed and reused once they are removed, not auction
+ * ids, so the bitmaps stay as small as the number of auctions.
+ * <p>
+ * Loaded at startup and updated as auctions are created and deleted. Values
+ * are grouped ignoring case, like the search filters.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class FacetIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(FacetIndex.class);
+    // Upper bounds of the price ranges; the last range has none
+    private static final double[] PRICE_BOUNDS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+    private static final String[] PRICE_LABELS = new String[PRICE_BOUNDS.length + 1];
+
+    static {
+        double lower = 0;
+        for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+            PRICE_LABELS[i] = label(lower) + "-" + label(PRICE_BOUNDS[i]);
+            lower = PRICE_BOUNDS[i];
+        }
+        PRICE_LABELS[PRICE_BOUNDS.length] = label(lower) + "+";
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    // Searches read under the read lock; changes take the write lock.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet all = new BitSet();
+    private final Map<String, Facet> categories = new HashMap<>();
+    private final Map<String, Facet> brands = new HashMap<>();
+    private final BitSet[] priceRanges = new BitSet[PRICE_LABELS.length];
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final BitSet freeOrdinals = new BitSet();
+    private int nextOrdinal;
+    // By ordinal
+    private double[] prices = new double[1024];
+
+    public FacetIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        Arrays.setAll(priceRanges, i -> new BitSet());
+    }
+
+    @PostConstruct
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            jdbcTemplate.query("SELECT id, category, brand, starting_price FROM auction_item",
+                    (RowCallbackHandler) rs -> add(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getDouble(4)));
+            log.info("Facet index loaded with {} auctions, {} categories and {} brands",
+                    all.cardinality(), categories.size(), brands.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rereads an auction after it was created, changed or deleted.
+     */
+    public void refresh(Long auctionId) {
+        List<Object[]> rows = jdbcTemplate.query(
+                "SELECT category, brand, starting_price FROM auction_item WHERE id = ?",
+                (rs, rowNum) -> new Object[]{rs.getString(1), rs.getString(2), rs.getDouble(3)},
+                auctionId);
+        lock.writeLock().lock();
+        try {
+            remove(auctionId);
+            if (!rows.isEmpty()) {
+                add(auctionId, (String) rows.get(0)[0], (String) rows.get(0)[1], (Double) rows.get(0)[2]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Facet counts for a search.
+     *
+     * @param matches the ids of the auctions matching the search text, or
+     *                null when there is none
+     */
+    public SearchFacets facets(Collection<Long> matches, String category, String brand, Double minPrice,
+                               Double maxPrice) {
+        lock.readLock().lock();
+        try {
+            BitSet base = (BitSet) all.clone();
+            if (matches != null) {
+                base.and(bits(matches));
+            }
+            BitSet inCategory = category != null ? bits(categories, category) : null;
+            BitSet ofBrand = brand != null ? bits(brands, brand) : null;
+            BitSet inPriceRange = minPrice != null || maxPrice != null ? priceFilter(base, minPrice, maxPrice) : null;
+
+            return new SearchFacets(
+                    counts(categories, and(base, ofBrand, inPriceRange)),
+                    counts(brands, and(base, inCategory, inPriceRange)),
+                    priceCounts(and(base, inCategory, ofBrand)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(long id, String category, String brand, double price) {
+        int bit = freeOrdinals.isEmpty() ? nextOrdinal++ : freeOrdinals.nextSetBit(0);
+        freeOrdinals.clear(bit);
+        ordinals.put(id, bit);
+        all.set(bit);
+        if (category != null) {
+            categories.computeIfAbsent(category.toLowerCase(Locale.ROOT), key -> new Facet(category)).bits.set(bit);
+        }
+        if (brand != null) {
+            brands.computeIfAbsent(brand.toLowerCase(Locale.ROOT), key -> new Facet(brand)).bits.set(bit);
+        }
+        if (bit >= prices.length) {
+            prices = Arrays.copyOf(prices, Math.max(bit + 1, prices.length * 2));
+        }
+        prices[bit] = price;
+        priceRanges[priceRange(price)].set(bit);
+    }
+
+    private void remove(long id) {
+        Integer bit = ordinals.remove(id);
+        if (bit == null) {
+            return;
+        }
+        all.clear(bit);
+        categories.values().forEach(facet -> facet.bits.clear(bit));
+        brands.values().forEach(facet -> facet.bits.clear(bit));
+        priceRanges[priceRange(prices[bit])].clear(bit);
+        freeOrdinals.set(bit);
+    }
+
+    // Ids that are not indexed are left out
+    private BitSet bits(Collection<Long> ids) {
+        BitSet bits = new BitSet(nextOrdinal);
+        for (Long id : ids) {
+            Integer bit = ordinals.get(id);
+            if (bit != null) {
+                bits.set(bit);
+            }
+        }
+        return bits;
+    }
+
+    private BitSet priceFilter(BitSet candidates, Double minPrice, Double maxPrice) {
+        BitSet inRange = new BitSet();
+        for (int bit = candidates.nextSetBit(0); bit >= 0; bit = candidates.nextSetBit(bit + 1)) {
+            if ((minPrice == null || prices[bit] >= minPrice) && (maxPrice == null || prices[bit] <= maxPrice)) {
+                inRange.set(bit);
+            }
+        }
+        return inRange;
+    }
+
+    // Values with at least one auction, most common first
+    private static Map<String, Integer> counts(Map<String, Facet> facets, BitSet candidates) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        facets.values().stream()
+                .map(facet -> Map.entry(facet.name, cardinality(candidates, facet.bits)))
+                .filter(count -> count.getValue() > 0)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                .forEach(count -> counts.put(count.getKey(), count.getValue()));
+        return counts;
+    }
+
+    private Map<String, Integer> priceCounts(BitSet candidates) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < priceRanges.length; i++) {
+            counts.put(PRICE_LABELS[i], cardinality(candidates, priceRanges[i]));
+        }
+        return counts;
+    }
+
+    private static BitSet bits(Map<String, Facet> facets, String value) {
+        Facet facet = facets.get(value.toLowerCase(Locale.ROOT));
+        return facet != null ? facet.bits : new BitSet();
+    }
+
+    private static BitSet and(BitSet base, BitSet... filters) {
+        BitSet result = (BitSet) base.clone();
+        for (BitSet filter : filters) {
+            if (filter != null) {
+                result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    private static int cardinality(BitSet a, BitSet b) {
+        BitSet both = (BitSet) a.clone();
+        both.and(b);
+        return both.cardinality();
+    }
+
+    private static int priceRange(double price) {
+        int range = 0;
+        while (range < PRICE_BOUNDS.length && price >= PRICE_BOUNDS[range]) {
+            range++;
+        }
+        return range;
+    }
+
+    private static String label(double bound) {
+        return bound == Math.rint(bound) ? String.valueOf((long) bound) : String.valueOf(bound);
+    }
+
+    private static final class Facet {
+        // Spelling of the first auction seen with this value
+        private final String name;
+        private final BitSet bits = new BitSet();
+
+        private Facet(String name) {
+            this.name = name;
+        }
+    }
+}
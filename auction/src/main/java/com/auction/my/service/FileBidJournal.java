@@ -0,0 +1,129 @@
+package com.auction.my.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bid journal kept in a single append-only file, written with one
+ * {@code write} and one {@code force} per group. The file only holds what
+ * has not reached the database yet: once everything written is checkpointed
+ * and the file has grown past {@code auction.bid-journal.truncate-bytes}, it
+ * is truncated.
+ */
+@Component
+@ConditionalOnProperty(name = "auction.bid-journal.mode", havingValue = "file", matchIfMissing = true)
+public class FileBidJournal extends GroupCommitBidJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(FileBidJournal.class);
+
+    private final Path file;
+    private final long truncateBytes;
+    private final FileChannel channel;
+    private long groupStart = -1;
+
+    public FileBidJournal(@Value("${auction.bid-journal.dir:data/journal}") String directory,
+                          @Value("${auction.bid-journal.truncate-bytes:67108864}") long truncateBytes) throws IOException {
+        Path dir = Path.of(directory);
+        Files.createDirectories(dir);
+        this.file = dir.resolve("bids.journal");
+        this.truncateBytes = truncateBytes;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public List<BidJournalRecord> recover(long afterSequence) {
+        List<BidJournalRecord> records = new ArrayList<>();
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(BidJournalRecord.SIZE * 4096);
+            long position = 0;
+            while (channel.read(buffer, position) > 0) {
+                buffer.flip();
+                while (buffer.remaining() >= BidJournalRecord.SIZE) {
+                    BidJournalRecord record = BidJournalRecord.readFrom(buffer);
+                    if (record == null) {
+                        log.warn("Bid journal {} ends with a torn record at offset {}", file, position);
+                        return records;
+                    }
+                    lastSequence = Math.max(lastSequence, record.getSequence());
+                    if (record.getSequence() > afterSequence) {
+                        records.add(record);
+                    }
+                    position += BidJournalRecord.SIZE;
+                }
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read bid journal " + file, e);
+        }
+        return records;
+    }
+
+    @Override
+    protected void open() throws IOException {
+        // Everything recovered has been written to the database by now.
+        channel.truncate(0);
+        channel.position(0);
+    }
+
+    @Override
+    protected void write(List<BidJournalRecord> records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(records.size() * BidJournalRecord.SIZE);
+        for (BidJournalRecord record : records) {
+            record.writeTo(buffer);
+        }
+        buffer.flip();
+
+        groupStart = channel.position();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    protected void sync() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    protected void discard() {
+        if (groupStart < 0) {
+            return;
+        }
+        try {
+            channel.truncate(groupStart);
+            channel.position(groupStart);
+        } catch (IOException e) {
+            log.error("Failed to discard partial write in bid journal {}", file, e);
+        }
+    }
+
+    @Override
+    protected void idle() {
+        try {
+            if (checkpointedSequence >= lastSequence && channel.size() >= truncateBytes) {
+                channel.truncate(0);
+                channel.position(0);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to truncate bid journal {}", file, e);
+        }
+    }
+
+    @Override
+    protected void closeStorage() throws IOException {
+        channel.close();
+    }
+}
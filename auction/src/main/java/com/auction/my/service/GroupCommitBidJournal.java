@@ -0,0 +1,168 @@
+package com.auction.my.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appender shared by the journal implementations. One thread drains every
+ * pending append, hands the records to {@link #write(List)} and makes them
+ * durable with one {@link #sync()}, so concurrent bids share the fsync (group
+ * commit). Callbacks then run in sequence order.
+ */
+abstract class GroupCommitBidJournal implements BidJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitBidJournal.class);
+    private static final int MAX_GROUP = 1024;
+    // A bid resolution journals a max bid, two bids and an extension at most.
+    private static final int MAX_RECORDS_PER_APPEND = 4;
+    protected static final int MAX_GROUP_RECORDS = MAX_GROUP * MAX_RECORDS_PER_APPEND;
+
+    private final BlockingQueue<Append> appends = new LinkedBlockingQueue<>();
+    private final Thread appender = new Thread(this::run, "bid-journal");
+
+    private volatile boolean running;
+    protected volatile long checkpointedSequence;
+    // Highest sequence seen by recover(); only touched by the appender thread once started.
+    protected long lastSequence;
+
+    /**
+     * Writes records that already carry their sequence.
+     */
+    protected abstract void write(List<BidJournalRecord> records) throws IOException;
+
+    /**
+     * Makes everything written so far durable.
+     */
+    protected abstract void sync() throws IOException;
+
+    /**
+     * Drops whatever the last {@link #write(List)} left behind after it or
+     * the following {@link #sync()} failed, so the group is not recovered.
+     */
+    protected abstract void discard();
+
+    /**
+     * Opens the journal for appending, after recovery.
+     */
+    protected abstract void open() throws IOException;
+
+    protected abstract void closeStorage() throws IOException;
+
+    /**
+     * Called by the appender thread between groups.
+     */
+    protected void idle() {
+    }
+
+    @Override
+    public void start(long lastSequence) {
+        this.lastSequence = Math.max(this.lastSequence, lastSequence);
+        this.checkpointedSequence = this.lastSequence;
+        try {
+            open();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open bid journal", e);
+        }
+        this.running = true;
+        appender.start();
+    }
+
+    @Override
+    public CompletableFuture<Void> append(List<BidJournalRecord> records, Runnable onDurable) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Bid journal is closed"));
+        }
+        if (records.size() > MAX_RECORDS_PER_APPEND) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                    "At most " + MAX_RECORDS_PER_APPEND + " records per append, got " + records.size()));
+        }
+        Append append = new Append(records, onDurable);
+        appends.add(append);
+        return append.future;
+    }
+
+    @Override
+    public void checkpoint(long sequence) {
+        checkpointedSequence = sequence;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            appender.join(TimeUnit.SECONDS.toMillis(30));
+            closeStorage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Failed to close bid journal", e);
+        }
+    }
+
+    private void run() {
+        List<Append> group = new ArrayList<>();
+        while (running || !appends.isEmpty()) {
+            try {
+                Append first = appends.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    group.add(first);
+                    appends.drainTo(group, MAX_GROUP - 1);
+                    commit(group);
+                    group.clear();
+                }
+                idle();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void commit(List<Append> group) {
+        List<BidJournalRecord> records = new ArrayList<>();
+        for (Append append : group) {
+            for (BidJournalRecord record : append.records) {
+                record.assignSequence(++lastSequence);
+                records.add(record);
+            }
+        }
+
+        try {
+            write(records);
+            sync();
+        } catch (IOException e) {
+            log.error("Failed to append {} records to the bid journal", records.size(), e);
+            discard();
+            group.forEach(append -> append.future.completeExceptionally(e));
+            return;
+        }
+
+        for (Append append : group) {
+            try {
+                append.onDurable.run();
+                append.future.complete(null);
+            } catch (RuntimeException e) {
+                append.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class Append {
+        private final List<BidJournalRecord> records;
+        private final Runnable onDurable;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Append(List<BidJournalRecord> records, Runnable onDurable) {
+            this.records = records;
+            this.onDurable = onDurable;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.auction.my.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves images stored in the database before the {@link ImageStore} existed
+ * into the store: large objects in {@code auction_item.front_image} and
+ * {@code auction_image.image}, Base64 text in {@code users.image}. Each row
+ * gets its hash; the old columns are left in place, but no longer required,
+ * since new rows do not fill them. Does nothing on a database created after
+ * the change.
+ * <p>
+ * Dropping the old columns is a separate step, only taken with
+ * {@code auction.images.migration.drop-columns=true}, once the store has been
+ * backed up: a column is dropped, and its large objects unlinked, when every
+ * row has been moved and every moved image is found in the store.
+ */
+@Component
+public class ImageMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageMigration.class);
+    private static final int BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ImageStore imageStore;
+    private final boolean dropColumns;
+
+    public ImageMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                          ImageStore imageStore,
+                          @Value("${auction.images.migration.drop-columns:false}") boolean dropColumns) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.imageStore = imageStore;
+        this.dropColumns = dropColumns;
+    }
+
+    public void migrate() {
+        migrate("auction_item", "front_image", "front_image_hash");
+        migrate("auction_image", "image", "image_hash");
+        migrate("users", "image", "image_hash");
+    }
+
+    private void migrate(String table, String column, String hashColumn) {
+        List<String[]> found = jdbcTemplate.query(
+                "SELECT data_type, is_nullable FROM information_schema.columns " +
+                        "WHERE table_schema = current_schema() AND table_name = ? AND column_name = ?",
+                (rs, rowNum) -> new String[]{rs.getString(1), rs.getString(2)}, table, column);
+        if (found.isEmpty()) {
+            return;
+        }
+        boolean largeObject = "oid".equals(found.get(0)[0]);
+        // The entities no longer map the column, so new rows leave it null.
+        if ("NO".equals(found.get(0)[1])) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN " + column + " DROP NOT NULL");
+            log.info("{}.{} is no longer required", table, column);
+        }
+
+        int moved = 0;
+        long lastId = 0;
+        while (true) {
+            long after = lastId;
+            // Large objects can only be read inside a transaction.
+            List<Object[]> batch = transactionTemplate.execute(status -> jdbcTemplate.query(
+                    "SELECT id, " + column + " FROM " + table + " WHERE id > ? AND " + hashColumn + " IS NULL " +
+                            "AND " + column + " IS NOT NULL ORDER BY id LIMIT " + BATCH_SIZE,
+                    (rs, rowNum) -> {
+                        long id = rs.getLong(1);
+                        if (largeObject) {
+                            try (InputStream image = rs.getBlob(2).getBinaryStream()) {
+                                return new Object[]{imageStore.put(image), id};
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                        try {
+                            return new Object[]{imageStore.putBase64(rs.getString(2)), id};
+                        } catch (IllegalArgumentException e) {
+                            log.warn("{}.{} of row {} is not a Base64 image, left in place", table, column, id);
+                            return new Object[]{null, id};
+                        }
+                    },
+                    after));
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            lastId = (Long) batch.get(batch.size() - 1)[1];
+            List<Object[]> hashed = new ArrayList<>();
+            for (Object[] row : batch) {
+                if (row[0] != null) {
+                    hashed.add(row);
+                }
+            }
+            jdbcTemplate.batchUpdate("UPDATE " + table + " SET " + hashColumn + " = ? WHERE id = ?", hashed);
+            moved += hashed.size();
+        }
+
+        if (dropColumns) {
+            dropColumn(table, column, hashColumn, largeObject);
+        } else if (moved > 0) {
+            log.info("Moved {} images out of {}.{} into the image store; the column is kept until " +
+                    "auction.images.migration.drop-columns is set", moved, table, column);
+        }
+    }
+
+    private void dropColumn(String table, String column, String hashColumn, boolean largeObject) {
+        Integer left = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + table + " WHERE " + hashColumn + " IS NULL AND " + column + " IS NOT NULL",
+                Integer.class);
+        if (left != null && left > 0) {
+            log.warn("Keeping {}.{} for {} rows that could not be moved", table, column, left);
+            return;
+        }
+        List<String> missing = new ArrayList<>();
+        jdbcTemplate.query("SELECT DISTINCT " + hashColumn + " FROM " + table + " WHERE " + column + " IS NOT NULL",
+                (RowCallbackHandler) rs -> {
+                    if (imageStore.find(rs.getString(1)) == null) {
+                        missing.add(rs.getString(1));
+                    }
+                });
+        if (!missing.isEmpty()) {
+            log.warn("Keeping {}.{}: {} moved images are not in the image store, e.g. {}",
+                    table, column, missing.size(), missing.get(0));
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (largeObject) {
+                jdbcTemplate.query("SELECT lo_unlink(" + column + ") FROM " + table + " WHERE " + column + " IS NOT NULL",
+                        rs -> {
+                        });
+            }
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN " + column);
+        });
+        log.info("Dropped {}.{}", table, column);
+    }
+}
@@ -0,0 +1,191 @@
+package com.auction.my.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Images on local disk, addressed by the SHA-256 of their content
+ * ({@code <dir>/ab/abcdef...}). Identical uploads are stored once, and a file
+ * never changes once written, so it can be cached forever under its hash.
+ * Database rows only keep the hash.
+ * <p>
+ * The content type of an image is told by its leading bytes, recorded when
+ * it is stored and served from memory; images stored before a restart have
+ * theirs read from the file once.
+ */
+@Component
+public class ImageStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    /** Leading bytes that tell the image type apart. */
+    public static final int SIGNATURE_BYTES = 12;
+    private static final String UNKNOWN_TYPE = "application/octet-stream";
+    private static final int MAX_CONTENT_TYPES = 100_000;
+
+    private final Path directory;
+    // By hash; the content behind a hash never changes, so neither does its type.
+    private final ConcurrentHashMap<String, String> contentTypes = new ConcurrentHashMap<>();
+
+    public ImageStore(@Value("${auction.images.dir:}") String directory) throws IOException {
+        if (directory.isBlank()) {
+            throw new IllegalStateException("auction.images.dir must be set to the image store directory");
+        }
+        this.directory = Path.of(directory);
+        Files.createDirectories(this.directory);
+    }
+
+    public String put(byte[] image) {
+        return put(new ByteArrayInputStream(image));
+    }
+
+    /**
+     * Copies the stream to a temporary file while hashing it, then moves the
+     * file under its hash unless that content is already stored.
+     */
+    public String put(InputStream image) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, "upload-", ".tmp");
+            MessageDigest digest = sha256();
+            BufferedInputStream in = new BufferedInputStream(image);
+            in.mark(SIGNATURE_BYTES);
+            byte[] signature = in.readNBytes(SIGNATURE_BYTES);
+            in.reset();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                in.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            remember(hash, signature);
+            Path target = path(hash);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                    temp = null;
+                } catch (FileAlreadyExistsException e) {
+                    // Stored concurrently by another upload of the same content.
+                }
+            }
+            return hash;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot store image", e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Left for the next cleanup of the directory.
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores an image sent as Base64, with or without a {@code data:} URL
+     * prefix.
+     *
+     * @throws IllegalArgumentException if it is not valid Base64
+     */
+    public String putBase64(String image) {
+        String base64 = image.startsWith("data:") ? image.substring(image.indexOf(',') + 1) : image;
+        return put(Base64.getDecoder().decode(base64));
+    }
+
+    /**
+     * The file holding the image with this hash, or null if the hash is
+     * malformed or not stored.
+     */
+    public Path find(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            return null;
+        }
+        Path path = path(hash);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    /**
+     * The content type of a stored image, as found by {@link #find(String)}.
+     */
+    public String contentType(String hash, Path path) throws IOException {
+        String contentType = contentTypes.get(hash);
+        if (contentType != null) {
+            return contentType;
+        }
+        byte[] signature;
+        try (InputStream in = Files.newInputStream(path)) {
+            signature = in.readNBytes(SIGNATURE_BYTES);
+        }
+        return remember(hash, signature);
+    }
+
+    /**
+     * The type of an image with these leading bytes: JPEG, PNG, GIF or WebP,
+     * or null for anything else.
+     */
+    public static String contentType(byte[] s) {
+        if (s.length < SIGNATURE_BYTES) {
+            return null;
+        }
+        if ((s[0] & 0xff) == 0xff && (s[1] & 0xff) == 0xd8 && (s[2] & 0xff) == 0xff) {
+            return "image/jpeg";
+        }
+        if ((s[0] & 0xff) == 0x89 && s[1] == 'P' && s[2] == 'N' && s[3] == 'G') {
+            return "image/png";
+        }
+        if (s[0] == 'G' && s[1] == 'I' && s[2] == 'F' && s[3] == '8') {
+            return "image/gif";
+        }
+        if (s[0] == 'R' && s[1] == 'I' && s[2] == 'F' && s[3] == 'F'
+                && s[8] == 'W' && s[9] == 'E' && s[10] == 'B' && s[11] == 'P') {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private String remember(String hash, byte[] signature) {
+        String contentType = contentType(signature);
+        contentType = contentType != null ? contentType : UNKNOWN_TYPE;
+        if (contentTypes.size() >= MAX_CONTENT_TYPES) {
+            contentTypes.clear();
+        }
+        contentTypes.put(hash, contentType);
+        return contentType;
+    }
+
+    /**
+     * Public URL of an image, as served by {@code ImageController}.
+     */
+    public static String url(String hash) {
+        return hash != null ? "/api/images/" + hash : null;
+    }
+
+    private Path path(String hash) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.auction.my.service;
+
+import com.auction.my.exception.ValidationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+
+/**
+ * Accepts uploaded images into the {@link ImageStore} in a single pass: the
+ * bytes are checked, hashed and written as they arrive, so memory use does
+ * not depend on the image size. Images must be JPEG, PNG, GIF or WebP (by
+ * their leading bytes) and at most {@code auction.images.max-bytes}.
+ */
+@Service
+public class ImageUploadService {
+
+    private final ImageStore imageStore;
+    private final long maxBytes;
+
+    public ImageUploadService(ImageStore imageStore,
+                              @Value("${auction.images.max-bytes:10485760}") long maxBytes) {
+        this.imageStore = imageStore;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Stores an image sent as the raw request body and returns its hash.
+     *
+     * @param contentLength the declared length, or -1 if unknown
+     */
+    public String upload(String contentType, long contentLength, InputStream body) {
+        if (contentType == null || !contentType.startsWith("image/")) {
+            throw new ValidationException("Content-Type must be an image type");
+        }
+        if (contentLength > maxBytes) {
+            throw new ValidationException("Image is larger than " + maxBytes + " bytes");
+        }
+        return store(body);
+    }
+
+    /**
+     * Stores an image sent as Base64, with or without a {@code data:} URL
+     * prefix, decoding it once on its way to disk.
+     */
+    public String uploadBase64(String image) {
+        int start = image.startsWith("data:") ? image.indexOf(',') + 1 : 0;
+        if ((long) (image.length() - start) / 4 * 3 > maxBytes + 2) {
+            throw new ValidationException("Image is larger than " + maxBytes + " bytes");
+        }
+        InputStream decoded = Base64.getDecoder().wrap(new CharsInputStream(image, start));
+        return store(new FilterInputStream(decoded) {
+            @Override
+            public int read(byte[] b, int off, int len) {
+                try {
+                    return super.read(b, off, len);
+                } catch (IOException e) {
+                    throw new ValidationException("Invalid image format. Must be Base64 encoded");
+                }
+            }
+        });
+    }
+
+    /**
+     * Checks that an image uploaded earlier is in the store.
+     */
+    public String requireStored(String hash) {
+        if (imageStore.find(hash) == null) {
+            throw new ValidationException("Unknown image " + hash);
+        }
+        return hash;
+    }
+
+    private String store(InputStream image) {
+        BufferedInputStream in = new BufferedInputStream(image);
+        try {
+            in.mark(ImageStore.SIGNATURE_BYTES);
+            byte[] signature = in.readNBytes(ImageStore.SIGNATURE_BYTES);
+            in.reset();
+            if (ImageStore.contentType(signature) == null) {
+                throw new ValidationException("Image must be JPEG, PNG, GIF or WebP");
+            }
+        } catch (IOException e) {
+            throw new ValidationException("Cannot read image");
+        }
+        return imageStore.put(new LimitedInputStream(in, maxBytes));
+    }
+
+    /**
+     * Fails the copy as soon as more than {@code maxBytes} have been read.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long count;
+
+        private LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) {
+            count += n;
+            if (count > maxBytes) {
+                throw new ValidationException("Image is larger than " + maxBytes + " bytes");
+            }
+        }
+    }
+
+    /**
+     * The characters of a Base64 string as bytes, without copying it.
+     */
+    private static final class CharsInputStream extends InputStream {
+        private final String chars;
+        private int position;
+
+        private CharsInputStream(String chars, int start) {
+            this.chars = chars;
+            this.position = start;
+        }
+
+        @Override
+        public int read() {
+            return position < chars.length() ? toByte(chars.charAt(position++)) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= chars.length()) {
+                return -1;
+            }
+            int n = Math.min(len, chars.length() - position);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = (byte) toByte(chars.charAt(position++));
+            }
+            return n;
+        }
+
+        // Anything outside ASCII is not Base64; map it to a byte the decoder rejects.
+        private static int toByte(char c) {
+            return c < 0x80 ? c : '!';
+        }
+    }
+}
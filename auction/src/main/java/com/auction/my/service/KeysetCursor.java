@@ -0,0 +1,105 @@
+package com.auction.my.service;
+
+import com.auction.my.dto.CursorPage;
+import com.auction.my.exception.ValidationException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Opaque {@code after} tokens for keyset pagination. A token carries the sort
+ * keys of the last row of a page ({@code endTime=...,id=...}), base64url
+ * encoded, so the next page is read with an index seek instead of an offset.
+ */
+final class KeysetCursor {
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * An empty {@code after} asks for the first page.
+     */
+    static ScrollPosition decode(String after) {
+        if (after.isEmpty()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8);
+            Map<String, Object> keys = new LinkedHashMap<>();
+            for (String key : decoded.split(",")) {
+                String[] parts = key.split("=", 3);
+                keys.put(parts[0], parse(parts[1], parts[2]));
+            }
+            return ScrollPosition.forward(keys);
+        } catch (RuntimeException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+
+    /**
+     * The sort keys carried by {@code after}, for queries that seek with their
+     * own predicate; empty for the first page.
+     */
+    static Map<String, Object> keys(String after) {
+        return ((KeysetScrollPosition) decode(after)).getKeys();
+    }
+
+    static <T, R> CursorPage<R> page(Window<T> window, Function<T, R> converter) {
+        String nextCursor = window.hasNext() && !window.isEmpty()
+                ? encode(((KeysetScrollPosition) window.positionAt(window.size() - 1)).getKeys())
+                : null;
+        return new CursorPage<>(window.map(converter).getContent(), nextCursor, window.hasNext());
+    }
+
+    /**
+     * Page from rows read with a limit of {@code size + 1}: the extra row only
+     * tells whether there is a next page.
+     */
+    static <T> CursorPage<T> page(List<T> rows, int size, Function<T, Map<String, Object>> keys) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? encode(keys.apply(content.get(size - 1))) : null;
+        return new CursorPage<>(content, nextCursor, hasNext);
+    }
+
+    private static String encode(Map<String, Object> keys) {
+        StringBuilder encoded = new StringBuilder();
+        for (Map.Entry<String, Object> key : keys.entrySet()) {
+            if (!encoded.isEmpty()) {
+                encoded.append(',');
+            }
+            encoded.append(key.getKey()).append('=').append(type(key.getValue())).append('=').append(key.getValue());
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(encoded.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String type(Object value) {
+        if (value instanceof LocalDateTime) {
+            return "t";
+        }
+        if (value instanceof Long) {
+            return "l";
+        }
+        if (value instanceof Double) {
+            return "d";
+        }
+        throw new IllegalArgumentException("Unsupported cursor key type " + value.getClass());
+    }
+
+    private static Object parse(String type, String value) {
+        return switch (type) {
+            case "t" -> LocalDateTime.parse(value);
+            case "l" -> Long.valueOf(value);
+            case "d" -> Double.valueOf(value);
+            default -> throw new IllegalArgumentException("Unknown cursor key type " + type);
+        };
+    }
+}
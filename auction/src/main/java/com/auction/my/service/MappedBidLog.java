@@ -0,0 +1,204 @@
+package com.auction.my.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Bid journal kept as memory-mapped, fixed-size segments named after the
+ * first sequence they hold ({@code bids-<sequence>.log}). Records are copied
+ * straight into the mapping, so an append costs a memory copy plus, when
+ * {@code auction.bid-journal.mmap.force} is on, one {@code msync} of the
+ * group's pages. With it off, an acknowledged bid survives a crash of the
+ * application but not of the host.
+ * <p>
+ * Segments are never truncated: together they are the audit trail of every
+ * bid, maximum bid and close, in the {@link BidJournalRecord} layout, and can
+ * be mapped and scanned offline. Pruning old segments is left to operations.
+ */
+@Component
+@ConditionalOnProperty(name = "auction.bid-journal.mode", havingValue = "mmap")
+public class MappedBidLog extends GroupCommitBidJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedBidLog.class);
+    private static final String PREFIX = "bids-";
+    private static final String SUFFIX = ".log";
+    // A group never spans more than two segments as long as a whole group fits in one.
+    private static final int MIN_SEGMENT_BYTES = MAX_GROUP_RECORDS * BidJournalRecord.SIZE;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean force;
+
+    // Write position in the newest segment after recovery.
+    private int recoveredPosition;
+    private MappedByteBuffer segment;
+    private MappedByteBuffer groupSegment;
+    private int groupPosition = -1;
+
+    public MappedBidLog(@Value("${auction.bid-journal.dir:data/journal}") String directory,
+                        @Value("${auction.bid-journal.mmap.segment-bytes:67108864}") int segmentBytes,
+                        @Value("${auction.bid-journal.mmap.force:true}") boolean force) throws IOException {
+        this.directory = Path.of(directory);
+        Files.createDirectories(this.directory);
+        int size = Math.max(segmentBytes, MIN_SEGMENT_BYTES);
+        this.segmentBytes = size - size % BidJournalRecord.SIZE;
+        this.force = force;
+    }
+
+    @Override
+    public List<BidJournalRecord> recover(long afterSequence) {
+        List<BidJournalRecord> records = new ArrayList<>();
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            boolean newest = i == segments.size() - 1;
+            // Everything in this segment precedes the next one's first sequence.
+            if (!newest && firstSequence(segments.get(i + 1)) <= afterSequence + 1) {
+                continue;
+            }
+            MappedByteBuffer buffer = map(segments.get(i), FileChannel.MapMode.READ_ONLY);
+            while (buffer.remaining() >= BidJournalRecord.SIZE) {
+                int position = buffer.position();
+                BidJournalRecord record = BidJournalRecord.readFrom(buffer);
+                if (record == null) {
+                    buffer.position(position);
+                    break;
+                }
+                lastSequence = Math.max(lastSequence, record.getSequence());
+                if (record.getSequence() > afterSequence) {
+                    records.add(record);
+                }
+            }
+            if (newest) {
+                recoveredPosition = buffer.position();
+            }
+        }
+        log.info("Bid log {} has {} segments, {} records after sequence {}",
+                directory, segments.size(), records.size(), afterSequence);
+        return records;
+    }
+
+    @Override
+    protected void open() throws IOException {
+        List<Path> segments = segments();
+        if (segments.isEmpty()) {
+            segment = create(lastSequence + 1);
+            return;
+        }
+        segment = map(segments.get(segments.size() - 1), FileChannel.MapMode.READ_WRITE);
+        segment.position(recoveredPosition);
+    }
+
+    @Override
+    protected void write(List<BidJournalRecord> records) throws IOException {
+        groupSegment = segment;
+        groupPosition = segment.position();
+        for (BidJournalRecord record : records) {
+            if (segment.remaining() < BidJournalRecord.SIZE) {
+                rotate(record.getSequence());
+            }
+            record.writeTo(segment);
+        }
+    }
+
+    @Override
+    protected void sync() {
+        if (!force) {
+            return;
+        }
+        int from = segment == groupSegment ? groupPosition : 0;
+        segment.force(from, segment.position() - from);
+    }
+
+    @Override
+    protected void discard() {
+        if (groupSegment == null) {
+            return;
+        }
+        if (segment != groupSegment) {
+            zero(segment, 0);
+            zero(groupSegment, groupPosition);
+        } else {
+            zero(segment, groupPosition);
+        }
+    }
+
+    @Override
+    protected void closeStorage() {
+        if (segment != null) {
+            segment.force();
+            segment = null;
+        }
+    }
+
+    private void rotate(long firstSequence) throws IOException {
+        if (force) {
+            segment.force();
+        }
+        segment = create(firstSequence);
+    }
+
+    private MappedByteBuffer create(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    private MappedByteBuffer map(Path path, FileChannel.MapMode mode) {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            return channel.map(mode, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map bid log segment " + path, e);
+        }
+    }
+
+    /**
+     * Clears the buffer from {@code from} to its write position, so that
+     * recovery stops there, and moves the write position back.
+     */
+    private void zero(MappedByteBuffer buffer, int from) {
+        int to = buffer.position();
+        for (int i = from; i < to; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.position(from);
+        if (force) {
+            buffer.force(from, to - from);
+        }
+    }
+
+    private List<Path> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> path.getFileName().toString().startsWith(PREFIX)
+                            && path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted((a, b) -> Long.compare(firstSequence(a), firstSequence(b)))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list bid log segments in " + directory, e);
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -1,33 +1,48 @@
 package com.auction.my.service;
 
+import com.auction.my.dto.CursorPage;
 import com.auction.my.dto.NotificationDto;
 import com.auction.my.entity.AuctionItem;
 import com.auction.my.entity.Bid;
 import com.auction.my.entity.Notification;
 import com.auction.my.entity.User;
+import com.auction.my.repository.BidRepository;
 import com.auction.my.repository.NotificationRepository;
 import com.auction.my.repository.UserRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 
 @Service
 @Transactional
 public class NotificationService {
+    // Newest first, like the offset variants.
+    private static final Sort CURSOR_ORDER = Sort.by(Sort.Direction.DESC, "timestamp", "id");
+
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
     private final UserService userService;
     private final WebSocketService webSocketService;
+    private final BidRepository bidRepository;
 
     public NotificationService(NotificationRepository notificationRepository, UserRepository userRepository,
-                               UserService userService, WebSocketService webSocketService) {
+                               UserService userService, WebSocketService webSocketService,
+                               BidRepository bidRepository) {
         this.notificationRepository = notificationRepository;
         this.userRepository = userRepository;
         this.userService = userService;
         this.webSocketService = webSocketService;
+        this.bidRepository = bidRepository;
     }
 
     public void createNotification(String message, Long userId, Notification.NotifType type) {
@@ -73,6 +88,25 @@ public class NotificationService {
         ).map(this::convertToDto);
     }
 
+    public CursorPage<NotificationDto> getUserNotifications(String after, int size) {
+        User currentUser = userRepository.findById(userService.getCurrentUser().getId())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        return KeysetCursor.page(
+                notificationRepository.findByUser(currentUser, KeysetCursor.decode(after), CURSOR_ORDER, Limit.of(size)),
+                this::convertToDto);
+    }
+
+    public CursorPage<NotificationDto> getUnreadNotifications(String after, int size) {
+        User currentUser = userRepository.findById(userService.getCurrentUser().getId())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        return KeysetCursor.page(
+                notificationRepository.findByUserAndIsReadFalse(currentUser, KeysetCursor.decode(after),
+                        CURSOR_ORDER, Limit.of(size)),
+                this::convertToDto);
+    }
+
     public NotificationDto markAsRead(Long id) {
         Notification notification = notificationRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Notification not found"));
@@ -97,81 +131,106 @@ public class NotificationService {
         notificationRepository.delete(notification);
     }
 
-    public void notifyNewBid(Bid bid) {
+    /**
+     * Tells the seller about a new bid, from values the bid path already has
+     * at hand, so the auction and its bids are not loaded. Every bidder in
+     * {@code outbidBidderIds} other than the new leader is told they were
+     * outbid; with proxy bidding one bid can outbid several users.
+     */
+    public void notifyNewBid(String auctionTitle, Long sellerId, double amount, Long bidderId,
+                             Collection<Long> outbidBidderIds) {
         // Notify the auction seller
         String sellerMessage = String.format(
                 "New bid of $%.2f placed on your auction '%s'",
-                bid.getAmount(),
-                bid.getAuctionItem().getTitle()
+                amount,
+                auctionTitle
         );
-        createNotification(sellerMessage, bid.getAuctionItem().getSeller().getId(),
-                Notification.NotifType.SOMEONEBIDYOURITEM);
-
-        // Notify previous highest bidder if exists
-        bid.getAuctionItem().getBids().stream()
-                .filter(b -> !b.getId().equals(bid.getId()))
-                .max((b1, b2) -> b1.getAmount().compareTo(b2.getAmount()))
-                .ifPresent(previousBid -> {
-                    String outbidMessage = String.format(
-                            "You have been outbid on '%s'. New bid: $%.2f",
-                            bid.getAuctionItem().getTitle(),
-                            bid.getAmount()
-                    );
-                    createNotification(outbidMessage, previousBid.getBidder().getId(),
-                            Notification.NotifType.OUTBID);
-                });
-    }
-
-    public void notifyAuctionClosed(AuctionItem auctionItem) {
+        createNotification(sellerMessage, sellerId, Notification.NotifType.SOMEONEBIDYOURITEM);
+
+        // Notify the bidders who lost the lead
+        for (Long outbidBidderId : outbidBidderIds) {
+            if (outbidBidderId.equals(bidderId)) {
+                continue;
+            }
+            String outbidMessage = String.format(
+                    "You have been outbid on '%s'. New bid: $%.2f",
+                    auctionTitle,
+                    amount
+            );
+            createNotification(outbidMessage, outbidBidderId, Notification.NotifType.OUTBID);
+        }
+    }
+
+    /**
+     * Notifications for auctions closed by the {@link AuctionSettlement},
+     * sent off the closing thread once the close is committed.
+     */
+    @Async("notificationExecutor")
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onAuctionClosed(AuctionClosedEvent event) {
+        notifyAuctionClosed(event.title(), event.sellerId(), event.winnerId(), event.winningBid(), event.bidderIds());
+    }
+
+    /**
+     * Tells the seller that an auction listed ahead of time has started,
+     * off the starting thread.
+     */
+    @Async("notificationExecutor")
+    @EventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onAuctionStarted(AuctionStartedEvent event) {
+        String message = String.format("Your auction '%s' is now live", event.title());
+        createNotification(message, event.sellerId(), Notification.NotifType.NEWITEMLISTED);
+    }
+
+    /**
+     * Tells the seller that the auction has ended, the winner that they won
+     * and every other bidder that they lost, from values already at hand.
+     */
+    public void notifyAuctionClosed(String auctionTitle, Long sellerId, Long winnerId, Double winningBid,
+                                    Collection<Long> bidderIds) {
         // Notify the seller
         String sellerMessage = String.format(
                 "Your auction '%s' has ended",
-                auctionItem.getTitle()
+                auctionTitle
         );
-        createNotification(sellerMessage, auctionItem.getSeller().getId(),
-                Notification.NotifType.AUCTION_END);
+        createNotification(sellerMessage, sellerId, Notification.NotifType.AUCTION_END);
 
         // Notify the winner if exists
-        auctionItem.getBids().stream()
-                .max((b1, b2) -> b1.getAmount().compareTo(b2.getAmount()))
-                .ifPresent(winningBid -> {
-                    String winnerMessage = String.format(
-                            "Congratulations! You won the auction '%s' with a bid of $%.2f",
-                            auctionItem.getTitle(),
-                            winningBid.getAmount()
-                    );
-                    createNotification(winnerMessage, winningBid.getBidder().getId(),
-                            Notification.NotifType.WIN);
-                });
+        if (winnerId != null) {
+            String winnerMessage = String.format(
+                    "Congratulations! You won the auction '%s' with a bid of $%.2f",
+                    auctionTitle,
+                    winningBid
+            );
+            createNotification(winnerMessage, winnerId, Notification.NotifType.WIN);
+        }
 
         // Notify other bidders
-        auctionItem.getBids().stream()
-                .map(Bid::getBidder)
-                .distinct()
-                .filter(bidder -> !bidder.equals(auctionItem.getBids().stream()
-                        .max((b1, b2) -> b1.getAmount().compareTo(b2.getAmount()))
-                        .map(Bid::getBidder)
-                        .orElse(null)))
-                .forEach(bidder -> {
-                    String message = String.format(
-                            "Auction '%s' has ended. Thank you for participating",
-                            auctionItem.getTitle()
-                    );
-                    createNotification(message, bidder.getId(), Notification.NotifType.AUCTIONENDED);
-                });
+        for (Long bidderId : bidderIds) {
+            if (bidderId.equals(winnerId)) {
+                continue;
+            }
+            String message = String.format(
+                    "Auction '%s' has ended. Thank you for participating",
+                    auctionTitle
+            );
+            createNotification(message, bidderId, Notification.NotifType.AUCTIONENDED);
+        }
     }
     public void notifyLastMaxBidderOutbid(Bid newBid) {
         // Get the auction item associated with the bid
         AuctionItem auctionItem = newBid.getAuctionItem();
 
-        // Get the previous max bid (the highest bid before the new one)
-        Bid currentMaxBid = auctionItem.getBids().stream()
-                .filter(bid -> !bid.getId().equals(newBid.getId())) // Exclude the new bid
-                .max((b1, b2) -> b1.getAmount().compareTo(b2.getAmount())) // Find the max bid
-                .orElse(null);
+        // Get the previous max bidder: the current leader, unless the new bid is the lead
+        Long previousBidderId = !newBid.getId().equals(auctionItem.getHighestBidId())
+                ? auctionItem.getHighestBidderId()
+                : bidRepository.findTopBidderIdsExcluding(auctionItem.getId(), newBid.getId(), PageRequest.of(0, 1))
+                        .stream().findFirst().orElse(null);
 
         // If there is no previous max bid (e.g., if this is the first bid), return early
-        if (currentMaxBid == null) {
+        if (previousBidderId == null) {
             return;
         }
 
@@ -181,7 +240,7 @@ public class NotificationService {
                 auctionItem.getTitle(),
                 newBid.getAmount()
         );
-        createNotification(outbidMessage, currentMaxBid.getBidder().getId(),
+        createNotification(outbidMessage, previousBidderId,
                 Notification.NotifType.OUTBID);
     }
 
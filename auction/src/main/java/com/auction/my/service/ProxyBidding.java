@@ -0,0 +1,65 @@
+package com.auction.my.service;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The proxy bidding rule, shared by the {@link BidEngine} and the
+ * database-only bid path so both settle a proxy war the same way.
+ * <p>
+ * The war is settled in one step instead of being replayed increment by
+ * increment: only the two highest maximum bids matter. The runner-up is
+ * recorded at its maximum and the leader one increment above it (capped at
+ * its own maximum).
+ */
+final class ProxyBidding {
+
+    /**
+     * Highest maximum first; on equal maximums the earlier one wins.
+     */
+    static final Comparator<Proxy> ORDER = Comparator
+            .comparingDouble(Proxy::maxAmount).reversed()
+            .thenComparing(Proxy::createdAt)
+            .thenComparing(Proxy::bidderId);
+
+    private ProxyBidding() {
+    }
+
+    /**
+     * The bids that the best two standing maximums, in {@link #ORDER},
+     * place against the current price, lowest first. Empty when the leader
+     * already holds the auction and nobody can challenge it.
+     */
+    static List<Answer> answer(Proxy top, Proxy runnerUp, Long highestBidderId, double highestAmount,
+                               double increment) {
+        boolean runnerUpCompetes = runnerUp != null && runnerUp.maxAmount() > highestAmount;
+        if (top.bidderId().equals(highestBidderId) ? !runnerUpCompetes : top.maxAmount() <= highestAmount) {
+            return List.of();
+        }
+
+        double competing = highestAmount;
+        Answer runnerUpBid = null;
+        if (runnerUpCompetes) {
+            // On a tie the earlier maximum wins at that amount; the runner-up gets no row.
+            if (runnerUp.maxAmount() < top.maxAmount()) {
+                runnerUpBid = new Answer(runnerUp.bidderId(), runnerUp.bidderName(), runnerUp.maxAmount());
+            }
+            competing = runnerUp.maxAmount();
+        }
+        Answer topBid = new Answer(top.bidderId(), top.bidderName(), Math.min(top.maxAmount(), competing + increment));
+        return runnerUpBid != null ? List.of(runnerUpBid, topBid) : List.of(topBid);
+    }
+
+    /**
+     * A standing maximum bid.
+     */
+    record Proxy(Long bidderId, String bidderName, double maxAmount, LocalDateTime createdAt) {
+    }
+
+    /**
+     * A bid placed on a proxy bidder's behalf.
+     */
+    record Answer(Long bidderId, String bidderName, double amount) {
+    }
+}
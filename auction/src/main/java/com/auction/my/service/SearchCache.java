@@ -0,0 +1,152 @@
+package com.auction.my.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Caches listing and search pages, at most {@code auction.search-cache.max-entries}
+ * of them, least recently used first out, each for at most
+ * {@code auction.search-cache.ttl-ms}.
+ * <p>
+ * Entries are dropped as soon as they may be wrong: a bid drops the pages
+ * showing that auction, and a created, changed or closed auction drops the
+ * pages showing it plus every page whose filters it matches (search text is
+ * not checked, so text searches with matching filters go too). A page
+ * loaded while such a change happened is not cached.
+ */
+@Component
+public class SearchCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    // All state is guarded by this.
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, Set<Key>> keysByAuction = new HashMap<>();
+    private long version;
+
+    public SearchCache(@Value("${auction.search-cache.max-entries:1000}") int maxEntries,
+                       @Value("${auction.search-cache.ttl-ms:30000}") long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * A normalized key: search text and filters as they compare, so that
+     * equivalent searches share an entry.
+     */
+    public static Key key(String kind, String text, String category, String brand, Double minPrice, Double maxPrice,
+                          Integer page, String after, int size) {
+        return new Key(kind, normalize(text), normalize(category), normalize(brand), minPrice, maxPrice,
+                page, after, size);
+    }
+
+    /**
+     * The cached value for the key, or the loaded one, cached.
+     *
+     * @param auctionIds the auctions a value shows
+     */
+    public <T> T get(Key key, Supplier<T> loader, Function<? super T, ? extends Collection<Long>> auctionIds) {
+        long loadedAt;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                @SuppressWarnings("unchecked")
+                T value = (T) entry.value;
+                return value;
+            }
+            if (entry != null) {
+                remove(key);
+            }
+            loadedAt = version;
+        }
+
+        T value = loader.get();
+        Set<Long> ids = new HashSet<>(auctionIds.apply(value));
+        synchronized (this) {
+            if (version == loadedAt) {
+                remove(key);
+                entries.put(key, new Entry(value, ids, System.currentTimeMillis() + ttlMillis));
+                ids.forEach(id -> keysByAuction.computeIfAbsent(id, auctionId -> new HashSet<>()).add(key));
+                if (entries.size() > maxEntries) {
+                    remove(entries.keySet().iterator().next());
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * The auction's price changed: only pages showing it are affected.
+     */
+    public synchronized void bidPlaced(Long auctionId) {
+        version++;
+        Set<Key> keys = keysByAuction.get(auctionId);
+        if (keys != null) {
+            Set.copyOf(keys).forEach(this::remove);
+        }
+    }
+
+    /**
+     * The auction was created, changed, closed or deleted: pages showing it,
+     * and pages it could now appear on, are affected.
+     */
+    public synchronized void auctionChanged(Long auctionId, String category, String brand, Double startingPrice) {
+        bidPlaced(auctionId);
+        String normalizedCategory = normalize(category);
+        String normalizedBrand = normalize(brand);
+        Iterator<Map.Entry<Key, Entry>> cached = entries.entrySet().iterator();
+        while (cached.hasNext()) {
+            Map.Entry<Key, Entry> entry = cached.next();
+            if (entry.getKey().matches(normalizedCategory, normalizedBrand, startingPrice)) {
+                cached.remove();
+                unindex(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            unindex(key, entry);
+        }
+    }
+
+    private void unindex(Key key, Entry entry) {
+        for (Long auctionId : entry.auctionIds) {
+            Set<Key> keys = keysByAuction.get(auctionId);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByAuction.remove(auctionId);
+            }
+        }
+    }
+
+    private static String normalize(String value) {
+        return StringUtils.hasText(value) ? value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT) : null;
+    }
+
+    public record Key(String kind, String text, String category, String brand, Double minPrice, Double maxPrice,
+                      Integer page, String after, int size) {
+
+        private boolean matches(String auctionCategory, String auctionBrand, Double price) {
+            return (category == null || category.equals(auctionCategory))
+                    && (brand == null || brand.equals(auctionBrand))
+                    && (minPrice == null || price != null && price >= minPrice)
+                    && (maxPrice == null || price != null && price <= maxPrice);
+        }
+    }
+
+    private record Entry(Object value, Set<Long> auctionIds, long expiresAt) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.auction.my.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the full-text search column of {@code auction_item} and its
+ * indexes, which Hibernate's schema update cannot express.
+ * <p>
+ * {@code search_vector} is a stored generated column: title (weight A),
+ * brand and category (B) and description (C), tokenized and stemmed with
+ * the English configuration. Postgres recomputes it on every insert and
+ * update, so the GIN index over it is always in step with the auction.
+ * Category and brand filters get indexes on their lower-cased value.
+ */
+@Component
+public class SearchSchema {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchSchema.class);
+    private static final String SEARCH_VECTOR =
+            "setweight(to_tsvector('english'::regconfig, coalesce(title, '')), 'A') || " +
+            "setweight(to_tsvector('english'::regconfig, coalesce(brand, '') || ' ' || coalesce(category, '')), 'B') || " +
+            "setweight(to_tsvector('english'::regconfig, coalesce(description, '')), 'C')";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SearchSchema(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void install() {
+        Integer columns = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = current_schema() " +
+                        "AND table_name = 'auction_item' AND column_name = 'search_vector'",
+                Integer.class);
+        if (columns == 0) {
+            log.info("Adding the search column to auction_item; existing auctions are indexed now");
+            jdbcTemplate.execute("ALTER TABLE auction_item ADD COLUMN search_vector tsvector " +
+                    "GENERATED ALWAYS AS (" + SEARCH_VECTOR + ") STORED");
+        }
+        // Built without blocking writes to the table
+        jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_auction_item_search " +
+                "ON auction_item USING GIN (search_vector)");
+        jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_auction_item_lower_category " +
+                "ON auction_item (lower(category))");
+        jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_auction_item_lower_brand " +
+                "ON auction_item (lower(brand))");
+    }
+}
@@ -0,0 +1,91 @@
+package com.auction.my.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Anti-sniping: a bid in the last {@code auction.soft-close.window-seconds}
+ * of an auction pushes its end back by {@code auction.soft-close.extension-seconds}.
+ * Off unless both are set above 0.
+ * <p>
+ * The bid path decides and stores the extension together with the bid; this
+ * then moves only that auction's close deadline and listing, and tells its
+ * watchers, so nothing is rescanned.
+ */
+@Component
+public class SoftClose {
+
+    private static final Logger log = LoggerFactory.getLogger(SoftClose.class);
+
+    private final AuctionCloseScheduler closeScheduler;
+    private final EndingSoonIndex endingSoonIndex;
+    private final WebSocketService webSocketService;
+    private final long windowSeconds;
+    private final long extensionSeconds;
+
+    public SoftClose(AuctionCloseScheduler closeScheduler,
+                     EndingSoonIndex endingSoonIndex,
+                     WebSocketService webSocketService,
+                     @Value("${auction.soft-close.window-seconds:0}") long windowSeconds,
+                     @Value("${auction.soft-close.extension-seconds:0}") long extensionSeconds) {
+        this.closeScheduler = closeScheduler;
+        this.endingSoonIndex = endingSoonIndex;
+        this.webSocketService = webSocketService;
+        this.windowSeconds = windowSeconds;
+        this.extensionSeconds = extensionSeconds;
+    }
+
+    /**
+     * The end time after a bid accepted at {@code bidTime}, or null when the
+     * bid does not extend the auction.
+     */
+    public LocalDateTime extend(LocalDateTime endTime, LocalDateTime bidTime) {
+        if (windowSeconds <= 0 || extensionSeconds <= 0 || endTime.minusSeconds(windowSeconds).isAfter(bidTime)) {
+            return null;
+        }
+        return endTime.plusSeconds(extensionSeconds);
+    }
+
+    /**
+     * For callers that decide the extension in SQL: a bid accepted at
+     * {@code bidTime} extends an auction ending at or before the returned
+     * time, by {@link #getExtensionSeconds()}. Null when soft close is off.
+     */
+    public LocalDateTime extendsEndingBy(LocalDateTime bidTime) {
+        if (windowSeconds <= 0 || extensionSeconds <= 0) {
+            return null;
+        }
+        return bidTime.plusSeconds(windowSeconds);
+    }
+
+    public long getExtensionSeconds() {
+        return extensionSeconds;
+    }
+
+    /**
+     * Moves the auction's close to its new end time. Safe to call from the
+     * bid path before the extension reaches the database, so the old
+     * deadline never fires.
+     */
+    public void reschedule(Long auctionId, LocalDateTime endTime) {
+        closeScheduler.reschedule(auctionId, endTime);
+    }
+
+    /**
+     * Applies a stored extension everywhere else: the close deadline, the
+     * ending-soon listing and the auction's watchers.
+     */
+    public void extended(Long auctionId, LocalDateTime endTime) {
+        closeScheduler.reschedule(auctionId, endTime);
+        endingSoonIndex.extended(auctionId, endTime);
+        try {
+            webSocketService.sendEndTime(auctionId, endTime);
+        } catch (RuntimeException e) {
+            log.warn("Failed to push the new end time of auction {}", auctionId, e);
+        }
+    }
+}
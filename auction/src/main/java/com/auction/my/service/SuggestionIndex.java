@@ -0,0 +1,267 @@
+package com.auction.my.service;
+
+import com.auction.my.dto.AuctionItemDtoWithoutImages;
+import com.auction.my.dto.AuctionSuggestion;
+import com.auction.my.repository.AuctionItemRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Type-ahead suggestions from the titles, brands and categories of open
+ * auctions, answered from memory.
+ * <p>
+ * Suggestions sit in a trie of their lower-cased words; titles also under
+ * each later word, so "cam" finds "Vintage Camera". Every node caches its
+ * {@value #TOP} most popular suggestions, so a lookup is a walk down the
+ * prefix. A suggestion's popularity is the number of open auctions that
+ * carry it plus their views. Adding or removing an auction only recomputes
+ * the nodes on its suggestions' paths.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class SuggestionIndex {
+
+    public static final int TOP = 10;
+    private static final Logger log = LoggerFactory.getLogger(SuggestionIndex.class);
+    // Longer keys add nodes that no one types that far into
+    private static final int MAX_KEY_LENGTH = 32;
+    private static final Comparator<Suggestion> BY_POPULARITY =
+            Comparator.comparingLong((Suggestion suggestion) -> suggestion.weight).reversed()
+                    .thenComparing(suggestion -> suggestion.text);
+
+    private final AuctionItemRepository auctionItemRepository;
+    // Lookups take the read lock; changes take the write lock.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node();
+    // By type and normalized text
+    private final Map<String, Suggestion> suggestions = new HashMap<>();
+    // What each indexed auction contributed, to take it back out
+    private final Map<Long, Contribution> auctions = new HashMap<>();
+    // While loading, nodes are ranked once at the end instead of per change
+    private boolean loading;
+
+    public SuggestionIndex(AuctionItemRepository auctionItemRepository) {
+        this.auctionItemRepository = auctionItemRepository;
+    }
+
+    @PostConstruct
+    public void load() {
+        List<AuctionItemDtoWithoutImages> listings = auctionItemRepository.findAllActiveListings(LocalDateTime.now());
+        lock.writeLock().lock();
+        try {
+            loading = true;
+            listings.forEach(this::add);
+            rankAll(root);
+        } finally {
+            loading = false;
+            lock.writeLock().unlock();
+        }
+        log.info("Suggestion index loaded with {} suggestions from {} open auctions",
+                suggestions.size(), listings.size());
+    }
+
+    /**
+     * Rereads an auction after it was created, changed, started or closed;
+     * it only contributes suggestions while it is open.
+     */
+    public void refresh(Long auctionId) {
+        LocalDateTime now = LocalDateTime.now();
+        AuctionItemDtoWithoutImages listing = auctionItemRepository.findListingById(auctionId)
+                .filter(found -> !found.getStartTime().isAfter(now) && found.getEndTime().isAfter(now))
+                .orElse(null);
+        lock.writeLock().lock();
+        try {
+            remove(auctionId);
+            if (listing != null) {
+                add(listing);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Takes back the suggestions of auctions that were closed.
+     */
+    public void removeAll(Collection<Long> auctionIds) {
+        lock.writeLock().lock();
+        try {
+            auctionIds.forEach(this::remove);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<AuctionSuggestion> suggest(String prefix, int size) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.children.get(key.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            return node.top.stream()
+                    .limit(size)
+                    .map(suggestion -> new AuctionSuggestion(suggestion.text, suggestion.type))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(AuctionItemDtoWithoutImages listing) {
+        long weight = 1 + (listing.getViews() != null ? listing.getViews() : 0);
+        List<Suggestion> contributed = new ArrayList<>(3);
+        contribute(contributed, "title", listing.getTitle(), weight);
+        contribute(contributed, "brand", listing.getBrand(), weight);
+        contribute(contributed, "category", listing.getCategory(), weight);
+        auctions.put(listing.getId(), new Contribution(contributed, weight));
+    }
+
+    private void remove(Long auctionId) {
+        Contribution contribution = auctions.remove(auctionId);
+        if (contribution == null) {
+            return;
+        }
+        for (Suggestion suggestion : contribution.suggestions) {
+            suggestion.weight -= contribution.weight;
+            if (--suggestion.auctions == 0) {
+                suggestions.remove(suggestion.type + ":" + suggestion.key);
+                suggestion.keys().forEach(key -> unlink(root, key, 0, suggestion));
+            } else {
+                suggestion.keys().forEach(key -> rerank(root, key, 0));
+            }
+        }
+    }
+
+    private void contribute(List<Suggestion> contributed, String type, String text, long weight) {
+        String key = text != null ? normalize(text) : "";
+        if (key.isEmpty()) {
+            return;
+        }
+        Suggestion suggestion = suggestions.computeIfAbsent(type + ":" + key,
+                id -> new Suggestion(text.trim(), type, key));
+        suggestion.weight += weight;
+        suggestion.auctions++;
+        contributed.add(suggestion);
+        suggestion.keys().forEach(path -> link(root, path, 0, suggestion));
+    }
+
+    // Adds the suggestion at the end of the path, then reranks back up.
+    private void link(Node node, String key, int depth, Suggestion suggestion) {
+        if (depth == key.length()) {
+            node.own.add(suggestion);
+        } else {
+            link(node.children.computeIfAbsent(key.charAt(depth), c -> new Node()), key, depth + 1, suggestion);
+        }
+        if (!loading) {
+            node.rank();
+        }
+    }
+
+    private void unlink(Node node, String key, int depth, Suggestion suggestion) {
+        if (depth == key.length()) {
+            node.own.remove(suggestion);
+        } else {
+            Node child = node.children.get(key.charAt(depth));
+            if (child == null) {
+                return;
+            }
+            unlink(child, key, depth + 1, suggestion);
+            if (child.top.isEmpty()) {
+                node.children.remove(key.charAt(depth));
+            }
+        }
+        node.rank();
+    }
+
+    private void rerank(Node node, String key, int depth) {
+        if (depth < key.length()) {
+            Node child = node.children.get(key.charAt(depth));
+            if (child == null) {
+                return;
+            }
+            rerank(child, key, depth + 1);
+        }
+        node.rank();
+    }
+
+    private static void rankAll(Node node) {
+        node.children.values().forEach(SuggestionIndex::rankAll);
+        node.rank();
+    }
+
+    // Lower case words separated by single spaces
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new TreeMap<>();
+        private final Set<Suggestion> own = new LinkedHashSet<>();
+        private List<Suggestion> top = List.of();
+
+        // From this node's own suggestions and its children's best
+        private void rank() {
+            Set<Suggestion> candidates = new LinkedHashSet<>(own);
+            children.values().forEach(child -> candidates.addAll(child.top));
+            top = candidates.stream().sorted(BY_POPULARITY).limit(TOP).toList();
+        }
+    }
+
+    private static final class Suggestion {
+        private final String text;
+        private final String type;
+        private final String key;
+        private long weight;
+        private int auctions;
+
+        private Suggestion(String text, String type, String key) {
+            this.text = text;
+            this.type = type;
+            this.key = key;
+        }
+
+        // The whole text, and for titles the text from each later word on
+        private List<String> keys() {
+            List<String> keys = new ArrayList<>();
+            keys.add(truncate(key));
+            if ("title".equals(type)) {
+                for (int space = key.indexOf(' '); space >= 0; space = key.indexOf(' ', space + 1)) {
+                    keys.add(truncate(key.substring(space + 1)));
+                }
+            }
+            return keys;
+        }
+
+        private static String truncate(String key) {
+            return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+        }
+    }
+
+    private record Contribution(List<Suggestion> suggestions, long weight) {
+    }
+}
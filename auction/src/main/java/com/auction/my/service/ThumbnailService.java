@@ -0,0 +1,208 @@
+package com.auction.my.service;
+
+import com.auction.my.entity.ImageMetadata;
+import com.auction.my.repository.ImageMetadataRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Produces thumbnails and {@link ImageMetadata} for uploaded auction images,
+ * off the request path. A fixed pool of workers with a bounded queue decodes
+ * each image once with {@code javax.imageio} and writes a JPEG per size into
+ * the {@link ImageStore}. When the queue is full the image is skipped; it is
+ * picked up again by {@link #processMissing()} at the next start.
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+    private static final int SMALL = 160;
+    private static final int MEDIUM = 480;
+    private static final int LARGE = 1024;
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final ImageStore imageStore;
+    private final ImageMetadataRepository imageMetadataRepository;
+    private final ThreadPoolExecutor workers;
+
+    public ThumbnailService(ImageStore imageStore,
+                            ImageMetadataRepository imageMetadataRepository,
+                            @Value("${auction.thumbnails.threads:2}") int threads,
+                            @Value("${auction.thumbnails.queue-capacity:1000}") int queueCapacity) {
+        this.imageStore = imageStore;
+        this.imageMetadataRepository = imageMetadataRepository;
+        AtomicInteger count = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnails-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Decoded images stay in memory; no temporary files.
+        ImageIO.setUseCache(false);
+    }
+
+    /**
+     * Queues an image for thumbnails unless it already has them.
+     */
+    public void submit(String hash) {
+        try {
+            workers.execute(() -> process(hash));
+        } catch (RejectedExecutionException e) {
+            log.warn("Thumbnail queue full, image {} left for the next start", hash);
+        }
+    }
+
+    /**
+     * Queues every auction image that has no metadata yet.
+     */
+    public void processMissing() {
+        imageMetadataRepository.findUnprocessedAuctionImageHashes().forEach(this::submit);
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+    }
+
+    private void process(String hash) {
+        try {
+            if (imageMetadataRepository.existsById(hash)) {
+                return;
+            }
+            Path path = imageStore.find(hash);
+            if (path == null) {
+                log.warn("Image {} is not in the image store", hash);
+                return;
+            }
+
+            ImageMetadata metadata = new ImageMetadata();
+            metadata.setHash(hash);
+            metadata.setByteSize(Files.size(path));
+            BufferedImage image = ImageIO.read(path.toFile());
+            if (image != null) {
+                metadata.setWidth(image.getWidth());
+                metadata.setHeight(image.getHeight());
+                BufferedImage small = fit(image, SMALL);
+                metadata.setSmallHash(store(hash, image, small));
+                metadata.setMediumHash(store(hash, image, fit(image, MEDIUM)));
+                metadata.setLargeHash(store(hash, image, fit(image, LARGE)));
+                metadata.setDominantColor(dominantColor(small));
+            } else {
+                log.warn("Image {} cannot be decoded, no thumbnails", hash);
+            }
+            imageMetadataRepository.save(metadata);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to make thumbnails for image {}", hash, e);
+        }
+    }
+
+    /**
+     * Stores a thumbnail, or returns the original's hash when the image
+     * already fits.
+     */
+    private String store(String hash, BufferedImage image, BufferedImage thumbnail) throws IOException {
+        if (thumbnail == image) {
+            return hash;
+        }
+        return imageStore.put(jpeg(thumbnail));
+    }
+
+    /**
+     * Scales the image down to fit a box of {@code size} pixels, halving at
+     * most per step so that large reductions stay smooth. Returns the image
+     * itself if it already fits.
+     */
+    private static BufferedImage fit(BufferedImage image, int size) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (width <= size && height <= size) {
+            return image;
+        }
+        double scale = Math.min((double) size / width, (double) size / height);
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = image;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            // JPEG has no alpha: transparent areas become white.
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static byte[] jpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Most common colour of the image, counted over 4-bit-per-channel buckets
+     * and averaged within the winning bucket.
+     */
+    private static String dominantColor(BufferedImage image) {
+        Map<Integer, long[]> buckets = new HashMap<>();
+        long[] best = null;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int rgb = image.getRGB(x, y);
+                int r = (rgb >> 16) & 0xff;
+                int g = (rgb >> 8) & 0xff;
+                int b = rgb & 0xff;
+                long[] bucket = buckets.computeIfAbsent((r >> 4) << 8 | (g >> 4) << 4 | (b >> 4), key -> new long[4]);
+                bucket[0]++;
+                bucket[1] += r;
+                bucket[2] += g;
+                bucket[3] += b;
+                if (best == null || bucket[0] > best[0]) {
+                    best = bucket;
+                }
+            }
+        }
+        return String.format("#%02x%02x%02x", best[1] / best[0], best[2] / best[0], best[3] / best[0]);
+    }
+}
@@ -0,0 +1,240 @@
+package com.auction.my.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Ranks auctions by recent activity: views, bids and new bidders, each
+ * weighing less the older it is (exponential decay with a half-life of
+ * {@code auction.trending.half-life-minutes}).
+ * <p>
+ * Scores use forward decay: an event adds {@code weight * e^(λ(t - landmark))}
+ * instead of every score shrinking over time, so the ranking only changes
+ * when an event arrives. That lets the top {@code auction.trending.capacity}
+ * be kept in a sorted set updated per event, and read without scanning
+ * anything. The landmark moves forward every few minutes to keep the numbers
+ * small, dropping auctions whose score has decayed to nothing.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class TrendingTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendingTracker.class);
+    private static final double VIEW_WEIGHT = 1;
+    private static final double BID_WEIGHT = 5;
+    private static final double NEW_BIDDER_WEIGHT = 10;
+    // Less than a view after about seven half-lives
+    private static final double FORGET_BELOW = 0.01;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double lambda;
+    private final int capacity;
+    private final ConcurrentHashMap<Long, Score> scores = new ConcurrentHashMap<>();
+    // Events hold the read lock; moving the landmark takes the write lock.
+    private final ReadWriteLock landmarkLock = new ReentrantReadWriteLock();
+    private volatile long landmark = System.currentTimeMillis();
+
+    // Top auctions, lowest first; guarded by itself.
+    private final TreeSet<Ranked> top = new TreeSet<>(
+            Comparator.comparingDouble(Ranked::score).thenComparingLong(Ranked::auctionId));
+    // Lowest score in a full top set; an event below it cannot enter.
+    private volatile double threshold = Double.NEGATIVE_INFINITY;
+
+    public TrendingTracker(JdbcTemplate jdbcTemplate,
+                           @Value("${auction.trending.half-life-minutes:60}") long halfLifeMinutes,
+                           @Value("${auction.trending.capacity:100}") int capacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.lambda = Math.log(2) / TimeUnit.MINUTES.toMillis(halfLifeMinutes);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Replays the bids of the last few half-lives on open auctions, so the
+     * ranking is meaningful right after a restart. Views are not stored and
+     * start from zero.
+     */
+    @PostConstruct
+    public void warmUp() {
+        long window = (long) (Math.log(1 / FORGET_BELOW) / lambda);
+        List<Object[]> bids = jdbcTemplate.query(
+                "SELECT b.auction_item_id, b.bidder_id, b.bid_time FROM bid b " +
+                        "JOIN auction_item a ON a.id = b.auction_item_id " +
+                        "WHERE b.bid_time > ? AND a.end_time > now() ORDER BY b.bid_time",
+                (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getTimestamp(3).getTime()},
+                new Timestamp(System.currentTimeMillis() - window));
+        for (Object[] bid : bids) {
+            add((Long) bid[0], BID_WEIGHT, (Long) bid[1], (Long) bid[2]);
+        }
+        log.info("Trending ranking warmed up with {} recent bids on {} auctions", bids.size(), scores.size());
+    }
+
+    public void recordView(Long auctionId) {
+        add(auctionId, VIEW_WEIGHT, null, System.currentTimeMillis());
+    }
+
+    public void recordBid(Long auctionId, Long bidderId) {
+        add(auctionId, BID_WEIGHT, bidderId, System.currentTimeMillis());
+    }
+
+    /**
+     * Forgets an auction that closed, moving the next best one into the top.
+     */
+    public void remove(Long auctionId) {
+        landmarkLock.readLock().lock();
+        try {
+            Score score = scores.remove(auctionId);
+            if (score == null) {
+                return;
+            }
+            synchronized (top) {
+                if (score.ranked != null) {
+                    top.remove(score.ranked);
+                    score.ranked = null;
+                    refill();
+                }
+            }
+        } finally {
+            landmarkLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The ids of the {@code size} highest ranked auctions, best first, at
+     * most {@code auction.trending.capacity}. Some may have ended.
+     */
+    public List<Long> ranking(int size) {
+        List<Long> ranking = new ArrayList<>(Math.min(size, capacity));
+        synchronized (top) {
+            Iterator<Ranked> best = top.descendingIterator();
+            while (best.hasNext() && ranking.size() < size) {
+                ranking.add(best.next().auctionId());
+            }
+        }
+        return ranking;
+    }
+
+    @Scheduled(fixedRateString = "${auction.trending.rebase-ms:600000}")
+    public void moveLandmark() {
+        landmarkLock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            double factor = Math.exp(-lambda * (now - landmark));
+            landmark = now;
+            scores.values().removeIf(score -> {
+                score.value *= factor;
+                score.ranked = null;
+                return score.value < FORGET_BELOW;
+            });
+            synchronized (top) {
+                top.clear();
+                threshold = Double.NEGATIVE_INFINITY;
+                refill();
+            }
+        } finally {
+            landmarkLock.writeLock().unlock();
+        }
+    }
+
+    private void add(Long auctionId, double weight, Long bidderId, long time) {
+        landmarkLock.readLock().lock();
+        try {
+            Score score = scores.computeIfAbsent(auctionId, id -> new Score());
+            double value;
+            synchronized (score) {
+                double added = weight;
+                if (bidderId != null && score.bidders.add(bidderId)) {
+                    added += NEW_BIDDER_WEIGHT;
+                }
+                score.value += added * Math.exp(lambda * (time - landmark));
+                value = score.value;
+            }
+            if (score.ranked != null || value > threshold) {
+                offer(auctionId, score);
+            }
+        } finally {
+            landmarkLock.readLock().unlock();
+        }
+    }
+
+    private void offer(Long auctionId, Score score) {
+        synchronized (top) {
+            if (scores.get(auctionId) != score) {
+                // Removed since the event was counted
+                return;
+            }
+            double value;
+            synchronized (score) {
+                value = score.value;
+            }
+            if (score.ranked != null) {
+                top.remove(score.ranked);
+            } else if (top.size() >= capacity) {
+                if (value <= top.first().score()) {
+                    return;
+                }
+                Score evicted = scores.get(top.pollFirst().auctionId());
+                if (evicted != null) {
+                    evicted.ranked = null;
+                }
+            }
+            score.ranked = new Ranked(auctionId, value);
+            top.add(score.ranked);
+            threshold = top.size() >= capacity ? top.first().score() : Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Fills free places in the top from all scores. Only runs when an
+     * auction leaves the top without being displaced, which is rare.
+     */
+    private void refill() {
+        TreeSet<Ranked> candidates = new TreeSet<>(top.comparator());
+        scores.forEach((auctionId, score) -> {
+            if (score.ranked == null) {
+                synchronized (score) {
+                    candidates.add(new Ranked(auctionId, score.value));
+                }
+                if (candidates.size() > capacity - top.size()) {
+                    candidates.pollFirst();
+                }
+            }
+        });
+        for (Ranked candidate : candidates) {
+            Score score = scores.get(candidate.auctionId());
+            if (score != null) {
+                score.ranked = candidate;
+                top.add(candidate);
+            }
+        }
+        threshold = top.size() >= capacity ? top.first().score() : Double.NEGATIVE_INFINITY;
+    }
+
+    private static final class Score {
+        private double value;
+        private final Set<Long> bidders = new HashSet<>();
+        // This auction's entry in the top set, if any; guarded by the top set.
+        private volatile Ranked ranked;
+    }
+
+    private record Ranked(long auctionId, double score) {
+    }
+}
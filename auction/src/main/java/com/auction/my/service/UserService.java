@@ -27,12 +27,14 @@ public class UserService {
     private final PasswordEncoder passwordEncoder;
     private final AuctionItemRepository auctionItemRepository;
     private final BidRepository bidRepository;
+    private final ImageUploadService imageUploadService;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuctionItemRepository auctionItemRepository, BidRepository bidRepository) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuctionItemRepository auctionItemRepository, BidRepository bidRepository, ImageUploadService imageUploadService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.auctionItemRepository = auctionItemRepository;
         this.bidRepository = bidRepository;
+        this.imageUploadService = imageUploadService;
     }
 
     public UserDto getUserById(Long id) {
@@ -58,7 +60,7 @@ public class UserService {
             user.setPhone(request.getPhone());
         }
         if (request.getImage() != null) {
-            user.setImage(request.getImage());
+            user.setImageHash(imageUploadService.uploadBase64(request.getImage()));
         }
         if (request.getGender() != null) {
             user.setGender(request.getGender());
@@ -96,6 +98,20 @@ public class UserService {
         return convertToDto(user);
     }
 
+    /**
+     * Returns the principal loaded by the JWT filter for this request, without
+     * going back to the database. Use it on hot paths that only need the id
+     * and display name of the caller.
+     */
+    public User getAuthenticatedUser() {
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (principal instanceof User user) {
+            return user;
+        }
+        return userRepository.findById(Long.parseLong(SecurityContextHolder.getContext().getAuthentication().getName()))
+                .orElseThrow(() -> new RuntimeException("Current user not found"));
+    }
+
     public Map<String, Object> getUserStatistics(Long userId) {
         Map<String, Object> statistics = new HashMap<>();
 
@@ -216,7 +232,7 @@ public class UserService {
         dto.setUsername(user.getFullName());
         dto.setPhone(user.getPhone());
         dto.setRole(user.getRole().name());
-        dto.setImage(user.getImage());
+        dto.setImage(ImageStore.url(user.getImageHash()));
 
         // Map the new fields
         dto.setGender(user.getGender());
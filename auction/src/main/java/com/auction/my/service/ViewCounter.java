@@ -0,0 +1,96 @@
+package com.auction.my.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts auction page views in memory, one {@link LongAdder} per auction, and
+ * adds them to {@code auction_item.views} every
+ * {@code auction.views.flush-ms} in one UPDATE. A view costs an increment on
+ * the request path; concurrent views are never lost to a read-then-write.
+ * <p>
+ * Views are counted, and idle counters dropped, inside {@code compute} on the
+ * auction's mapping, so a view never lands on a counter already dropped.
+ */
+@Component
+public class ViewCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(ViewCounter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentHashMap<Long, LongAdder> counts = new ConcurrentHashMap<>();
+
+    public ViewCounter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void record(Long auctionId) {
+        counts.compute(auctionId, (id, count) -> {
+            LongAdder counted = count != null ? count : new LongAdder();
+            counted.increment();
+            return counted;
+        });
+    }
+
+    /**
+     * Views counted since the last flush, to add to the stored count.
+     */
+    public long pending(Long auctionId) {
+        LongAdder count = counts.get(auctionId);
+        return count != null ? count.sum() : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${auction.views.flush-ms:5000}")
+    public void flush() {
+        Map<Long, Long> deltas = new HashMap<>();
+        counts.forEach((id, count) -> {
+            long delta = count.sumThenReset();
+            if (delta == 0) {
+                // Idle since the last flush: drop it, unless a view came in meanwhile.
+                counts.computeIfPresent(id, (key, current) -> current.sum() == 0 ? null : current);
+            } else {
+                deltas.put(id, delta);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Long[] ids = deltas.keySet().toArray(new Long[0]);
+        Long[] views = new Long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            views[i] = deltas.get(ids[i]);
+        }
+        try {
+            jdbcTemplate.update(connection -> {
+                Array idArray = connection.createArrayOf("bigint", ids);
+                Array viewArray = connection.createArrayOf("bigint", views);
+                PreparedStatement statement = connection.prepareStatement(
+                        "UPDATE auction_item a SET views = COALESCE(a.views, 0) + d.views " +
+                                "FROM unnest(?, ?) AS d(id, views) WHERE a.id = d.id");
+                statement.setArray(1, idArray);
+                statement.setArray(2, viewArray);
+                return statement;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush views of {} auctions, keeping them for the next flush", ids.length, e);
+            deltas.forEach((id, delta) -> counts.computeIfAbsent(id, key -> new LongAdder()).add(delta));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+}
@@ -1,5 +1,6 @@
 package com.auction.my.service;
 
+import com.auction.my.dto.AuctionEndTimeDto;
 import com.auction.my.dto.NotificationDto;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -8,6 +9,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+
 @Service
 public class WebSocketService {
 
@@ -28,4 +31,17 @@ public class WebSocketService {
             throw new RuntimeException("Failed to serialize notification data", e);
         }
     }
+
+    /**
+     * Tells everyone watching the auction, on {@code /topic/auctions/{id}},
+     * that its end time moved.
+     */
+    public void sendEndTime(Long auctionId, LocalDateTime endTime) {
+        try {
+            String payload = objectMapper.writeValueAsString(new AuctionEndTimeDto(auctionId, endTime));
+            messagingTemplate.convertAndSend("/topic/auctions/" + auctionId, payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize end time", e);
+        }
+    }
 }
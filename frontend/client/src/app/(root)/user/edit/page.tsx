@@ -11,6 +11,9 @@ import { useErreur } from "../../../../context/ErreurContext";
 
 const DEFAULT_PROFILE_IMAGE = "/default-avatar.webp";
 
+// The API returns profile images as /api/images/{hash} URLs on its own origin.
+const toImageSrc = (url: string): string => new URL(url, axiosInstance.defaults.baseURL).toString();
+
 interface UserData {
   id: number;
   email: string;
@@ -70,7 +73,7 @@ const UserProfile: React.FC = () => {
         setOriginalFormData(userData);
 
         if (userData.image) {
-          setPreviewImage(`data:image/jpeg;base64,${userData.image}`);
+          setPreviewImage(toImageSrc(userData.image));
         } else {
           setPreviewImage(DEFAULT_PROFILE_IMAGE);
         }
@@ -108,7 +111,9 @@ const UserProfile: React.FC = () => {
     e.preventDefault();
     
     try {
-      const submitData = { ...formData };
+      // The image is only sent, as Base64, when a new one was picked; the
+      // stored one is kept otherwise.
+      const submitData: UserData = { ...formData, image: null };
       
       if (profileImage) {
         const reader = new FileReader();
@@ -147,14 +152,16 @@ const UserProfile: React.FC = () => {
         businessName: data.businessName
       });
 
-      setOriginalFormData(formData);
+      const updated: UserData = { ...formData, image: response.data.image };
+      setFormData(updated);
+      setOriginalFormData(updated);
       setProfileImage(null);
       setIsEditing(prev => ({ ...prev, profile: false }));
       showError('Success', 'Profile updated successfully');
       
       // Update preview image if needed
       if (response.data.image) {
-        setPreviewImage(`data:image/jpeg;base64,${response.data.image}`);
+        setPreviewImage(toImageSrc(response.data.image));
       }
     } catch (error) {
       throw error;
@@ -164,7 +171,7 @@ const UserProfile: React.FC = () => {
   const handleCancelProfile = () => {
     setFormData(originalFormData);
     setProfileImage(null);
-    setPreviewImage(originalFormData.image ? `data:image/jpeg;base64,${originalFormData.image}` : DEFAULT_PROFILE_IMAGE);
+    setPreviewImage(originalFormData.image ? toImageSrc(originalFormData.image) : DEFAULT_PROFILE_IMAGE);
     setIsEditing(prev => ({ ...prev, profile: false }));
   };
 